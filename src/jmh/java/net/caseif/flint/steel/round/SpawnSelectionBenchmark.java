@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.caseif.flint.steel.round;
+
+import net.caseif.flint.util.physical.Location3D;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of selecting a spawn point from 200 spawn points for 100
+ * challengers, comparing the all-pairs distance loop previously run on every
+ * respawn against the {@link SpawnSelector} with each {@link SpawnScorer}.
+ *
+ * <p>Capturing player positions requires a running server, so the
+ * {@link PositionSnapshot} is built directly.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpawnSelectionBenchmark {
+
+    private static final int SPAWNS = 200;
+    private static final int CHALLENGERS = 100;
+    private static final String WORLD = "world";
+    // edge length of the square area the spawns and challengers are spread over
+    private static final double AREA = 256;
+
+    private final Map<Integer, Location3D> spawns = new HashMap<>();
+    private final SpawnSelector selector = new SpawnSelector();
+    private PositionSnapshot positions;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        for (int i = 0; i < SPAWNS; i++) {
+            spawns.put(i, new Location3D(WORLD, random.nextDouble() * AREA, 64, random.nextDouble() * AREA));
+        }
+
+        UUID[] uuids = new UUID[CHALLENGERS];
+        String[] worlds = new String[CHALLENGERS];
+        double[] xs = new double[CHALLENGERS];
+        double[] ys = new double[CHALLENGERS];
+        double[] zs = new double[CHALLENGERS];
+        for (int i = 0; i < CHALLENGERS; i++) {
+            uuids[i] = UUID.randomUUID();
+            worlds[i] = WORLD;
+            xs[i] = random.nextDouble() * AREA;
+            ys[i] = 64 + random.nextDouble() * 8;
+            zs[i] = random.nextDouble() * AREA;
+        }
+        positions = new PositionSnapshot(0, CHALLENGERS, uuids, worlds, xs, ys, zs, new float[CHALLENGERS],
+                new float[CHALLENGERS]);
+    }
+
+    @Benchmark
+    public Location3D allPairs() {
+        Location3D best = null;
+        double greatestMean = 0;
+        for (Location3D spawn : spawns.values()) {
+            double sum = 0;
+            for (int i = 0; i < positions.size(); i++) {
+                double dx = positions.getX(i) - spawn.getX();
+                double dy = positions.getY(i) - spawn.getY();
+                double dz = positions.getZ(i) - spawn.getZ();
+                sum += Math.sqrt(dx * dx + dy * dy + dz * dz);
+            }
+            double mean = sum / positions.size();
+            if (mean > greatestMean) {
+                best = spawn;
+                greatestMean = mean;
+            }
+        }
+        return best;
+    }
+
+    @Benchmark
+    public Location3D maxMean() {
+        return selector.select(WORLD, spawns, positions, SpawnScorer.MAX_MEAN);
+    }
+
+    @Benchmark
+    public Location3D maxMin() {
+        return selector.select(WORLD, spawns, positions, SpawnScorer.MAX_MIN);
+    }
+
+}
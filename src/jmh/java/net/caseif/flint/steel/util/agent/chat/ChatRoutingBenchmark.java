@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.caseif.flint.steel.util.agent.chat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of routing a single chat message to 500 online players
+ * with {@link ChatRoutingTable.Route routes} like those built for a server
+ * running ten rounds of twenty challengers, split into two teams each.
+ *
+ * <p>Building the table requires a running server, so the routes are built
+ * directly from the same groups the table would compute.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatRoutingBenchmark {
+
+    private static final int PLAYERS = 500;
+    private static final int ROUNDS = 10;
+    private static final int ROUND_SIZE = 20;
+
+    private final List<UUID> recipients = new ArrayList<>(PLAYERS);
+
+    // a player outside any round, who may not message the isolated rounds
+    private ChatRoutingTable.Route outsiderRoute;
+    // a challenger in a round with separate round chat
+    private ChatRoutingTable.Route roundRoute;
+    // a challenger in a round with separate team chats but open round chat
+    private ChatRoutingTable.Route teamRoute;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < PLAYERS; i++) {
+            recipients.add(UUID.randomUUID());
+        }
+
+        // the first half of the rounds keep their chat separate from the rest of the server
+        Set<UUID> isolated = new HashSet<>(recipients.subList(0, ROUNDS / 2 * ROUND_SIZE));
+        outsiderRoute = new ChatRoutingTable.Route(false, isolated);
+        roundRoute = new ChatRoutingTable.Route(true, new HashSet<>(recipients.subList(0, ROUND_SIZE)));
+
+        int round = ROUNDS / 2 * ROUND_SIZE;
+        Set<UUID> excluded = new HashSet<>(isolated);
+        excluded.addAll(recipients.subList(round + ROUND_SIZE / 2, round + ROUND_SIZE)); // the other team
+        teamRoute = new ChatRoutingTable.Route(false, excluded);
+    }
+
+    @Benchmark
+    public int outsider() {
+        return route(outsiderRoute);
+    }
+
+    @Benchmark
+    public int separateRound() {
+        return route(roundRoute);
+    }
+
+    @Benchmark
+    public int separateTeams() {
+        return route(teamRoute);
+    }
+
+    private int route(ChatRoutingTable.Route route) {
+        int delivered = 0;
+        for (UUID recipient : recipients) {
+            if (route.allows(recipient)) {
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+}
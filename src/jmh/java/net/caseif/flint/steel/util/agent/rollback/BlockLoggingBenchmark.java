@@ -0,0 +1,94 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.caseif.flint.steel.util.agent.rollback;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-block cost of encoding the state of a block with no block
+ * entity, comparing the YAML document previously built for every block
+ * against the {@link BlockDataPalette} reference which replaces it.
+ *
+ * <p>Capturing the block itself requires a running server, so both paths
+ * start from the block data string.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockLoggingBenchmark {
+
+    private static final String[] BLOCK_DATA = {
+            "minecraft:stone",
+            "minecraft:dirt",
+            "minecraft:grass_block[snowy=false]",
+            "minecraft:white_wool",
+            "minecraft:oak_planks",
+            "minecraft:oak_log[axis=y]",
+            "minecraft:oak_stairs[facing=north,half=bottom,shape=straight,waterlogged=false]",
+            "minecraft:glass",
+    };
+
+    private BlockDataPalette palette;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        palette = new BlockDataPalette(new ArrayList<String>());
+    }
+
+    @Benchmark
+    public String yamlDocument() {
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("block-data", nextBlockData());
+        return yaml.saveToString();
+    }
+
+    @Benchmark
+    public String paletteReference() throws IOException {
+        return palette.getReference(nextBlockData());
+    }
+
+    private String nextBlockData() {
+        next = (next + 1) % BLOCK_DATA.length;
+        return BLOCK_DATA[next];
+    }
+
+}
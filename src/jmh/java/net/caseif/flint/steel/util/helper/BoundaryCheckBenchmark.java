@@ -0,0 +1,101 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.caseif.flint.steel.util.helper;
+
+import net.caseif.flint.util.physical.Boundary;
+import net.caseif.flint.util.physical.Location3D;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of checking 1,000 challenger positions against an arena
+ * boundary, comparing the {@link Location3D} previously built for each check
+ * against the raw coordinate check in {@link LocationHelper}.
+ *
+ * <p>Player locations require a running server, so positions are read from
+ * arrays standing in for the players.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoundaryCheckBenchmark {
+
+    private static final int CHALLENGERS = 1000;
+    private static final String WORLD = "world";
+
+    private Boundary bound;
+    private final double[] xs = new double[CHALLENGERS];
+    private final double[] ys = new double[CHALLENGERS];
+    private final double[] zs = new double[CHALLENGERS];
+
+    @Setup
+    public void setUp() {
+        bound = new Boundary(new Location3D(WORLD, -100, 0, -100), new Location3D(WORLD, 100, 128, 100));
+        // roughly one in ten challengers is out of bounds
+        Random random = new Random(0);
+        for (int i = 0; i < CHALLENGERS; i++) {
+            xs[i] = random.nextDouble() * 210 - 105;
+            ys[i] = random.nextDouble() * 128;
+            zs[i] = random.nextDouble() * 210 - 105;
+        }
+    }
+
+    @Benchmark
+    public int allocating() {
+        int outside = 0;
+        for (int i = 0; i < CHALLENGERS; i++) {
+            if (!bound.contains(new Location3D(WORLD, xs[i], ys[i], zs[i]))) {
+                outside++;
+            }
+        }
+        return outside;
+    }
+
+    @Benchmark
+    public int rawCoordinates() {
+        int outside = 0;
+        for (int i = 0; i < CHALLENGERS; i++) {
+            if (!LocationHelper.contains(bound, WORLD, xs[i], ys[i], zs[i])) {
+                outside++;
+            }
+        }
+        return outside;
+    }
+
+}
@@ -35,6 +35,7 @@ import net.caseif.flint.common.util.factory.FactoryRegistry;
 import net.caseif.flint.lobby.LobbySign;
 import net.caseif.flint.minigame.Minigame;
 import net.caseif.flint.round.Round;
+import net.caseif.flint.steel.round.SpawnScorer;
 import net.caseif.flint.steel.util.SteelUtils;
 import net.caseif.flint.steel.util.agent.chat.ChatAgent;
 import net.caseif.flint.steel.util.factory.ArenaFactory;
@@ -58,6 +59,11 @@ public class SteelCore extends CommonCore {
     public static final boolean SPECTATOR_SUPPORT;
 
     private static boolean VERBOSE_LOGGING;
+    private static int ROLLBACK_TICK_BUDGET;
+    private static int SIGN_REFRESH_INTERVAL;
+    private static boolean VIRTUAL_LOBBY_SIGNS;
+    private static SpawnScorer PROXIMITY_SPAWN_SCORER;
+    private static int BOUNDARY_SWEEP_INTERVAL;
 
     private static final ChatAgent CHAT_AGENT = new ChatAgent();
 
@@ -84,6 +90,19 @@ public class SteelCore extends CommonCore {
         checkIfLegacyMinecraftVersion();
 
         VERBOSE_LOGGING = SteelMain.getInstance().getConfig().getBoolean("verbose-logging");
+        ROLLBACK_TICK_BUDGET = Math.max(SteelMain.getInstance().getConfig().getInt("rollback-tick-budget"), 0);
+        SIGN_REFRESH_INTERVAL = Math.max(SteelMain.getInstance().getConfig().getInt("sign-refresh-interval", 1), 1);
+        VIRTUAL_LOBBY_SIGNS = SteelMain.getInstance().getConfig().getBoolean("virtual-lobby-signs");
+        String scorer = SteelMain.getInstance().getConfig().getString("proximity-spawn-scoring", "max-mean");
+        try {
+            PROXIMITY_SPAWN_SCORER = SpawnScorer.valueOf(scorer.toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException ex) {
+            logWarning("Invalid proximity-spawn-scoring value \"" + scorer
+                    + "\" - defaulting to max-mean");
+            PROXIMITY_SPAWN_SCORER = SpawnScorer.MAX_MEAN;
+        }
+        BOUNDARY_SWEEP_INTERVAL
+                = Math.max(SteelMain.getInstance().getConfig().getInt("boundary-sweep-interval", 20), 0);
 
         CommonCore.initializeCommon();
         registerFactories();
@@ -127,6 +146,57 @@ public class SteelCore extends CommonCore {
         return mcVersion;
     }
 
+    /**
+     * Returns the number of milliseconds per tick which may be spent restoring
+     * arenas, or {@code 0} if arenas should be restored all at once.
+     *
+     * @return The rollback budget in milliseconds per tick
+     */
+    public static int getRollbackTickBudget() {
+        return ROLLBACK_TICK_BUDGET;
+    }
+
+    /**
+     * Returns the number of ticks over which lobby sign updates are coalesced
+     * before the physical signs are redrawn.
+     *
+     * @return The lobby sign refresh interval in ticks
+     */
+    public static int getSignRefreshInterval() {
+        return SIGN_REFRESH_INTERVAL;
+    }
+
+    /**
+     * Returns whether lobby sign text should be sent only to nearby players
+     * rather than written to the sign blocks.
+     *
+     * @return Whether virtual lobby signs are enabled
+     */
+    public static boolean useVirtualLobbySigns() {
+        return VIRTUAL_LOBBY_SIGNS;
+    }
+
+    /**
+     * Returns the strategy used to score spawn points for rounds using
+     * proximity-based spawning.
+     *
+     * @return The proximity spawn scorer
+     */
+    public static SpawnScorer getProximitySpawnScorer() {
+        return PROXIMITY_SPAWN_SCORER;
+    }
+
+    /**
+     * Returns the number of ticks between sweeps checking that challengers
+     * are within their arena boundaries, or {@code 0} if boundaries should
+     * only be enforced as players move.
+     *
+     * @return The boundary sweep interval in ticks
+     */
+    public static int getBoundarySweepInterval() {
+        return BOUNDARY_SWEEP_INTERVAL;
+    }
+
     public static LegacyHelper getLegacyHelper() {
         Preconditions.checkState(legacyMcVersion, "Cannot get legacy helper on non-legacy platform!");
 
@@ -32,8 +32,11 @@ import net.caseif.flint.steel.listener.plugin.PluginListener;
 import net.caseif.flint.steel.listener.rollback.RollbackBlockListener;
 import net.caseif.flint.steel.listener.rollback.RollbackEntityListener;
 import net.caseif.flint.steel.listener.rollback.RollbackInventoryListener;
+import net.caseif.flint.steel.listener.world.WorldListener;
 import net.caseif.flint.steel.util.TelemetryRunner;
+import net.caseif.flint.steel.util.agent.rollback.RollbackAgent;
 import net.caseif.flint.steel.util.compatibility.CoreDataMigrationAgent;
+import net.caseif.flint.steel.util.file.PlayerStateStore;
 import net.caseif.flint.steel.util.file.SteelDataFiles;
 import net.caseif.flint.steel.util.helper.ConfigHelper;
 import net.caseif.flint.steel.util.helper.UpdateHelper;
@@ -80,6 +83,7 @@ public class SteelMain extends JavaPlugin {
         }
 
         new CoreDataMigrationAgent().migrateData();
+        PlayerStateStore.load();
 
         initMetrics();
         initTelemetry();
@@ -88,6 +92,8 @@ public class SteelMain extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        RollbackAgent.shutdownWriter();
+        PlayerStateStore.shutdown();
     }
 
     @Override
@@ -130,6 +136,8 @@ public class SteelMain extends JavaPlugin {
         Bukkit.getPluginManager().registerEvents(new RollbackInventoryListener(), getInstance());
 
         Bukkit.getPluginManager().registerEvents(new LobbyListener(), getInstance());
+
+        Bukkit.getPluginManager().registerEvents(new WorldListener(), getInstance());
     }
 
 }
@@ -0,0 +1,203 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.arena;
+
+import net.caseif.flint.arena.Arena;
+import net.caseif.flint.steel.util.helper.LocationHelper;
+import net.caseif.flint.util.physical.Boundary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial index of arena boundaries, used to quickly resolve which arenas
+ * contain a given location.
+ *
+ * <p>Arenas are bucketed by each chunk their boundary overlaps. Arenas which
+ * span more than {@link #MAX_INDEXED_CHUNKS} chunks are instead kept in a
+ * per-world list which is checked linearly.</p>
+ *
+ * <p>This class is not thread-safe and must only be accessed from the main
+ * server thread.</p>
+ */
+public final class ArenaIndex {
+
+    private static final int MAX_INDEXED_CHUNKS = 4096;
+
+    private static final Map<String, WorldIndex> WORLDS = new HashMap<>();
+    // the boundary each arena was indexed with, so it can be removed even after its boundary changes
+    private static final Map<Arena, Boundary> INDEXED = new IdentityHashMap<>();
+
+    private ArenaIndex() {
+    }
+
+    /**
+     * Adds the given {@link Arena} to the index, replacing any existing entry
+     * for it.
+     *
+     * @param arena The {@link Arena} to index
+     */
+    public static void register(Arena arena) {
+        unregister(arena);
+
+        Boundary bound = arena.getBoundary();
+        WorldIndex index = WORLDS.get(arena.getWorld());
+        if (index == null) {
+            index = new WorldIndex();
+            WORLDS.put(arena.getWorld(), index);
+        }
+        index.add(arena, bound);
+        INDEXED.put(arena, bound);
+    }
+
+    /**
+     * Removes the given {@link Arena} from the index if present.
+     *
+     * @param arena The {@link Arena} to remove
+     */
+    public static void unregister(Arena arena) {
+        Boundary bound = INDEXED.remove(arena);
+        if (bound == null) {
+            return;
+        }
+
+        WorldIndex index = WORLDS.get(arena.getWorld());
+        if (index != null) {
+            index.remove(arena, bound);
+            if (index.isEmpty()) {
+                WORLDS.remove(arena.getWorld());
+            }
+        }
+    }
+
+    /**
+     * Gets all indexed {@link Arena}s whose boundaries contain the given
+     * location.
+     *
+     * @param world The name of the world of the location
+     * @param x The x-coordinate of the location
+     * @param y The y-coordinate of the location
+     * @param z The z-coordinate of the location
+     * @return The {@link Arena}s containing the location
+     */
+    public static List<Arena> getArenasAt(String world, double x, double y, double z) {
+        WorldIndex index = WORLDS.get(world);
+        if (index == null) {
+            return Collections.emptyList();
+        }
+
+        List<Arena> arenas = null;
+        List<Arena> cell = index.cells.get(chunkKey(toChunk(x), toChunk(z)));
+        if (cell != null) {
+            arenas = collect(cell, x, y, z, arenas);
+        }
+        arenas = collect(index.large, x, y, z, arenas);
+        return arenas != null ? arenas : Collections.<Arena>emptyList();
+    }
+
+    private static List<Arena> collect(List<Arena> candidates, double x, double y, double z, List<Arena> results) {
+        for (Arena arena : candidates) {
+            if (LocationHelper.contains(arena.getBoundary(), x, y, z)) {
+                if (results == null) {
+                    results = new ArrayList<>(2);
+                }
+                results.add(arena);
+            }
+        }
+        return results;
+    }
+
+    private static int toChunk(double coord) {
+        return (int) Math.floor(coord) >> 4;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static class WorldIndex {
+
+        private final Map<Long, List<Arena>> cells = new HashMap<>();
+        private final List<Arena> large = new ArrayList<>();
+
+        private void add(Arena arena, Boundary bound) {
+            if (!isIndexable(bound)) {
+                large.add(arena);
+                return;
+            }
+            int minX = toChunk(bound.getLowerBound().getX());
+            int maxX = toChunk(bound.getUpperBound().getX());
+            int minZ = toChunk(bound.getLowerBound().getZ());
+            int maxZ = toChunk(bound.getUpperBound().getZ());
+            for (int cx = minX; cx <= maxX; cx++) {
+                for (int cz = minZ; cz <= maxZ; cz++) {
+                    long key = chunkKey(cx, cz);
+                    List<Arena> cell = cells.get(key);
+                    if (cell == null) {
+                        cell = new ArrayList<>(1);
+                        cells.put(key, cell);
+                    }
+                    cell.add(arena);
+                }
+            }
+        }
+
+        private void remove(Arena arena, Boundary bound) {
+            if (!isIndexable(bound)) {
+                large.remove(arena);
+                return;
+            }
+            int minX = toChunk(bound.getLowerBound().getX());
+            int maxX = toChunk(bound.getUpperBound().getX());
+            int minZ = toChunk(bound.getLowerBound().getZ());
+            int maxZ = toChunk(bound.getUpperBound().getZ());
+            for (int cx = minX; cx <= maxX; cx++) {
+                for (int cz = minZ; cz <= maxZ; cz++) {
+                    long key = chunkKey(cx, cz);
+                    List<Arena> cell = cells.get(key);
+                    if (cell != null && cell.remove(arena) && cell.isEmpty()) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            return cells.isEmpty() && large.isEmpty();
+        }
+
+        private static boolean isIndexable(Boundary bound) {
+            long width = (long) toChunk(bound.getUpperBound().getX()) - toChunk(bound.getLowerBound().getX()) + 1;
+            long depth = (long) toChunk(bound.getUpperBound().getZ()) - toChunk(bound.getLowerBound().getZ()) + 1;
+            return width * depth <= MAX_INDEXED_CHUNKS;
+        }
+
+    }
+
+}
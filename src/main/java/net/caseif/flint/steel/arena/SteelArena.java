@@ -44,7 +44,6 @@ import net.caseif.flint.util.physical.Location3D;
 
 import com.google.common.base.Optional;
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
@@ -63,6 +62,13 @@ public class SteelArena extends CommonArena {
 
     public SteelArena(CommonMinigame parent, String id, String name, Location3D[] spawnPoints, Boundary boundary) {
         super(parent, id.toLowerCase(), name, spawnPoints, boundary);
+        ArenaIndex.register(this);
+    }
+
+    @Override
+    public void setBoundary(Boundary bound) {
+        super.setBoundary(bound);
+        ArenaIndex.register(this);
     }
 
     @Override
@@ -88,8 +94,7 @@ public class SteelArena extends CommonArena {
                 "Cannot mark block for rollback in arena " + getId() + " - not within boundary");
 
         try {
-            Location loc = LocationHelper.convertLocation(location);
-            getRollbackAgent().logBlockChange(loc.getBlock());
+            getRollbackAgent().logBlockChange(LocationHelper.getBlock(location));
         } catch (IOException | SQLException ex) {
             throw new RollbackException(ex);
         }
@@ -106,7 +111,7 @@ public class SteelArena extends CommonArena {
         if (world == null) {
             throw new IllegalArgumentException("Invalid world for lobby sign location");
         }
-        Block block = LocationHelper.convertLocation(location).getBlock();
+        Block block = LocationHelper.getBlock(location);
         if (!getLobbySignMap().containsKey(location)) {
             if (!(block.getState() instanceof Sign)) {
                 if (SteelCore.getMcVersion() >= SteelCore.MC_114_TRANSFORMED) {
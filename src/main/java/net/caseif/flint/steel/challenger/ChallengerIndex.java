@@ -0,0 +1,80 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.challenger;
+
+import net.caseif.flint.challenger.Challenger;
+
+import com.google.common.base.Optional;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Global index of {@link Challenger}s by player UUID, allowing constant-time
+ * lookups from event handlers without iterating every round of every
+ * minigame.
+ *
+ * <p>The index is updated as challengers join and leave rounds, and may be
+ * queried from any thread.</p>
+ */
+public final class ChallengerIndex {
+
+    private static final ConcurrentMap<UUID, Challenger> CHALLENGERS = new ConcurrentHashMap<>();
+
+    private ChallengerIndex() {
+    }
+
+    /**
+     * Gets the {@link Challenger} with the given UUID, if any.
+     *
+     * @param uuid The UUID of the player to look up
+     * @return The {@link Challenger} with the given UUID, or
+     *     {@link Optional#absent()} if the player is not in a round
+     */
+    public static Optional<Challenger> get(UUID uuid) {
+        return Optional.fromNullable(CHALLENGERS.get(uuid));
+    }
+
+    /**
+     * Adds the given {@link Challenger} to the index.
+     *
+     * @param challenger The {@link Challenger} to add
+     */
+    public static void add(Challenger challenger) {
+        CHALLENGERS.put(challenger.getUniqueId(), challenger);
+    }
+
+    /**
+     * Removes the given {@link Challenger} from the index, if it is still the
+     * indexed challenger for its player.
+     *
+     * @param challenger The {@link Challenger} to remove
+     */
+    public static void remove(Challenger challenger) {
+        CHALLENGERS.remove(challenger.getUniqueId(), challenger);
+    }
+
+}
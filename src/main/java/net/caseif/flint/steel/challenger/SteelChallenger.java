@@ -28,7 +28,9 @@ import net.caseif.flint.challenger.Challenger;
 import net.caseif.flint.common.challenger.CommonChallenger;
 import net.caseif.flint.steel.SteelCore;
 import net.caseif.flint.steel.round.SteelRound;
+import net.caseif.flint.steel.util.agent.chat.ChatRoutingTable;
 import net.caseif.flint.steel.util.helper.PlayerHelper;
+import net.caseif.flint.team.Team;
 
 import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
@@ -48,18 +50,27 @@ public class SteelChallenger extends CommonChallenger {
     private GameMode prevGameMode;
     private boolean hadFlight;
     private List<UUID> alreadyInvisibleTo = new ArrayList<>();
+    private boolean pendingTeleport;
 
     public SteelChallenger(UUID uuid, SteelRound round) {
         super(uuid, Bukkit.getPlayer(uuid).getName(), round);
     }
 
+    @Override
+    public void setTeam(Team team) {
+        super.setTeam(team);
+        ChatRoutingTable.invalidate();
+    }
+
     @Override
     public void setSpectating(boolean spectating) {
         super.setSpectating(spectating);
+        ChatRoutingTable.invalidate();
         Player pl = Bukkit.getPlayer(getUniqueId());
         assert pl != null;
         if (spectating) {
             prevGameMode = pl.getGameMode();
+            PlayerHelper.storeGameMode(getUniqueId(), prevGameMode); // in case they disconnect while spectating
             if (SteelCore.SPECTATOR_SUPPORT) {
                 pl.setGameMode(GameMode.SPECTATOR);
             } else {
@@ -74,6 +85,7 @@ public class SteelChallenger extends CommonChallenger {
             if (prevGameMode != null) {
                 pl.setGameMode(prevGameMode);
                 prevGameMode = null;
+                PlayerHelper.storeGameMode(getUniqueId(), null);
             }
             if (!SteelCore.SPECTATOR_SUPPORT) {
                 for (Player p : PlayerHelper.getOnlinePlayers()) {
@@ -88,6 +100,27 @@ public class SteelChallenger extends CommonChallenger {
         }
     }
 
+    /**
+     * Gets whether this challenger has joined its round but has not yet been
+     * teleported into the arena.
+     *
+     * @return Whether this challenger is awaiting its initial teleport
+     */
+    public boolean isPendingTeleport() {
+        return pendingTeleport;
+    }
+
+    /**
+     * Sets whether this challenger is awaiting its initial teleport into the
+     * arena. Boundary checks are skipped for the challenger while this is set.
+     *
+     * @param pendingTeleport Whether this challenger is awaiting its initial
+     *     teleport
+     */
+    public void setPendingTeleport(boolean pendingTeleport) {
+        this.pendingTeleport = pendingTeleport;
+    }
+
     public void tryHide(Player hidden, Player viewer) {
         if (viewer.canSee(hidden)) {
             viewer.hidePlayer(hidden);
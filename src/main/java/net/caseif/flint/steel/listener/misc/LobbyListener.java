@@ -24,17 +24,19 @@
 
 package net.caseif.flint.steel.listener.misc;
 
-import net.caseif.flint.arena.Arena;
 import net.caseif.flint.common.event.lobby.CommonPlayerClickLobbySignEvent;
 import net.caseif.flint.common.lobby.wizard.IWizardManager;
 import net.caseif.flint.config.ConfigNode;
 import net.caseif.flint.event.lobby.PlayerClickLobbySignEvent;
+import net.caseif.flint.lobby.LobbySign;
 import net.caseif.flint.minigame.Minigame;
 import net.caseif.flint.steel.SteelCore;
+import net.caseif.flint.steel.lobby.LobbySignIndex;
 import net.caseif.flint.steel.minigame.SteelMinigame;
 import net.caseif.flint.steel.util.helper.LocationHelper;
 import net.caseif.flint.util.physical.Location3D;
 
+import com.google.common.base.Optional;
 import org.bukkit.ChatColor;
 import org.bukkit.block.Sign;
 import org.bukkit.event.EventHandler;
@@ -56,12 +58,8 @@ public class LobbyListener implements Listener {
     public void onBlockBreak(BlockBreakEvent event) {
         if (event.getBlock().getState() instanceof Sign) {
             Location3D loc = LocationHelper.convertLocation(event.getBlock().getLocation());
-            for (Minigame mg : SteelCore.getMinigames().values()) {
-                for (Arena arena : mg.getArenas()) {
-                    if (arena.getLobbySignAt(loc).isPresent()) {
-                        event.setCancelled(true);
-                    }
-                }
+            if (LobbySignIndex.get(loc).isPresent()) {
+                event.setCancelled(true);
             }
         }
     }
@@ -71,27 +69,25 @@ public class LobbyListener implements Listener {
         if (event.getAction() == Action.LEFT_CLICK_BLOCK || event.getAction() == Action.RIGHT_CLICK_BLOCK) {
             if (event.getClickedBlock().getState() instanceof Sign) {
                 Location3D loc = LocationHelper.convertLocation(event.getClickedBlock().getLocation());
-                for (Minigame mg : SteelCore.getMinigames().values()) {
-                    for (Arena arena : mg.getArenas()) {
-                        if (arena.getLobbySignAt(loc).isPresent()) { // location contains lobby sign
-                            if (event.getAction() == Action.LEFT_CLICK_BLOCK
-                                    && (event.getPlayer().isSneaking()
-                                    || !mg.getConfigValue(ConfigNode.REQUIRE_SNEAK_TO_DESTROY_LOBBY))) {
-                                if (event.getPlayer().hasPermission(mg.getPlugin() + ".lobby.destroy")
-                                        || event.getPlayer().hasPermission(mg.getPlugin() + ".lobby.*")) {
-                                    arena.getLobbySignAt(loc).get().unregister();
-                                    return;
-                                }
-                            }
-                            mg.getEventBus().post(new CommonPlayerClickLobbySignEvent(
-                                    event.getPlayer().getUniqueId(),
-                                    arena.getLobbySignAt(loc).get(),
-                                    event.getAction() == Action.LEFT_CLICK_BLOCK
-                                            ? PlayerClickLobbySignEvent.ClickType.LEFT
-                                            : PlayerClickLobbySignEvent.ClickType.RIGHT
-                            ));
+                Optional<LobbySign> sign = LobbySignIndex.get(loc);
+                if (sign.isPresent()) { // location contains lobby sign
+                    Minigame mg = sign.get().getArena().getMinigame();
+                    if (event.getAction() == Action.LEFT_CLICK_BLOCK
+                            && (event.getPlayer().isSneaking()
+                            || !mg.getConfigValue(ConfigNode.REQUIRE_SNEAK_TO_DESTROY_LOBBY))) {
+                        if (event.getPlayer().hasPermission(mg.getPlugin() + ".lobby.destroy")
+                                || event.getPlayer().hasPermission(mg.getPlugin() + ".lobby.*")) {
+                            sign.get().unregister();
+                            return;
                         }
                     }
+                    mg.getEventBus().post(new CommonPlayerClickLobbySignEvent(
+                            event.getPlayer().getUniqueId(),
+                            sign.get(),
+                            event.getAction() == Action.LEFT_CLICK_BLOCK
+                                    ? PlayerClickLobbySignEvent.ClickType.LEFT
+                                    : PlayerClickLobbySignEvent.ClickType.RIGHT
+                    ));
                 }
             }
         }
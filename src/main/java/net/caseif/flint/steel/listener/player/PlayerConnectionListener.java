@@ -26,12 +26,14 @@ package net.caseif.flint.steel.listener.player;
 
 import net.caseif.flint.challenger.Challenger;
 import net.caseif.flint.common.CommonCore;
-import net.caseif.flint.common.util.helper.CommonPlayerHelper;
 import net.caseif.flint.minigame.Minigame;
 import net.caseif.flint.steel.SteelCore;
+import net.caseif.flint.steel.challenger.ChallengerIndex;
 import net.caseif.flint.steel.challenger.SteelChallenger;
 import net.caseif.flint.steel.minigame.SteelMinigame;
 import net.caseif.flint.steel.round.SteelRound;
+import net.caseif.flint.steel.util.file.PlayerState;
+import net.caseif.flint.steel.util.file.PlayerStateStore;
 import net.caseif.flint.steel.util.helper.PlayerHelper;
 
 import com.google.common.base.Optional;
@@ -55,12 +57,12 @@ public class PlayerConnectionListener implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerQuit(PlayerQuitEvent event) {
-        Optional<Challenger> ch = CommonCore.getChallenger(event.getPlayer().getUniqueId());
+        Optional<Challenger> ch = ChallengerIndex.get(event.getPlayer().getUniqueId());
         if (ch.isPresent()) {
             // store the player to disk so their inventory and location can be popped later
             ((SteelRound) ch.get().getRound()).removeChallenger(ch.get(), true, true);
 
-            CommonPlayerHelper.setOfflineFlag(event.getPlayer().getUniqueId());
+            PlayerHelper.setOfflineFlag(event.getPlayer().getUniqueId());
         }
 
         for (Minigame mg : CommonCore.getMinigames().values()) {
@@ -84,45 +86,39 @@ public class PlayerConnectionListener implements Listener {
         }
 
         tryReset(event.getPlayer());
+    }
 
-        // the rest of the method is insurance against a catastrophic failure
-        // of the server while players are still in a round
-        try {
-            PlayerHelper.popInventory(event.getPlayer());
-        } catch (IllegalArgumentException ignored) { // don't need to pop, so we can ignore it
-        } catch (InvalidConfigurationException | IOException ex) {
-            // inventory was present but Something Happened™
-            SteelCore.logSevere("Failed to pop inventory for player " + event.getPlayer().getName());
-            ex.printStackTrace();
+    private void tryReset(Player player) {
+        // a single lookup tells us whether anything was left behind, e.g. by a disconnect or a server crash
+        PlayerState state = PlayerStateStore.get(player.getUniqueId());
+        if (state.isEmpty()) {
+            return;
         }
 
-        try {
-            PlayerHelper.popLocation(event.getPlayer());
-        } catch (IllegalArgumentException ignored) { // don't need to pop, so we can ignore it
-        } catch (InvalidConfigurationException | IOException ex) {
-            // location was present but Something Happened™
-            SteelCore.logSevere("Failed to pop location for player " + event.getPlayer().getName());
-            ex.printStackTrace();
-        }
-    }
+        PlayerHelper.checkOfflineFlag(player.getUniqueId());
 
-    private void tryReset(Player player) {
-        if (CommonPlayerHelper.checkOfflineFlag(player.getUniqueId())) {
-            // these two try-blocks are separate so they can both run even if one fails
+        // these try-blocks are separate so they can all run even if one fails
+        if (state.hasInventory()) {
             try {
                 PlayerHelper.popInventory(player);
             } catch (IllegalArgumentException | InvalidConfigurationException | IOException ex) {
+                // inventory was present but Something Happened™
                 SteelCore.logSevere("Failed to pop inventory for player " + player.getName());
                 ex.printStackTrace();
             }
+        }
 
+        if (state.getReturnLocation().isPresent()) {
             try {
                 PlayerHelper.popLocation(player);
             } catch (IllegalArgumentException | InvalidConfigurationException | IOException ex) {
+                // location was present but Something Happened™
                 SteelCore.logSevere("Failed to pop location for player " + player.getName());
                 ex.printStackTrace();
             }
         }
+
+        PlayerHelper.popGameMode(player);
     }
 
 }
@@ -25,20 +25,22 @@
 package net.caseif.flint.steel.listener.player;
 
 import net.caseif.flint.challenger.Challenger;
-import net.caseif.flint.common.CommonCore;
 import net.caseif.flint.common.challenger.CommonChallenger;
 import net.caseif.flint.common.lobby.wizard.IWizardManager;
 import net.caseif.flint.config.ConfigNode;
-import net.caseif.flint.minigame.Minigame;
 import net.caseif.flint.steel.SteelCore;
-import net.caseif.flint.steel.minigame.SteelMinigame;
-import net.caseif.flint.steel.util.helper.ChatHelper;
+import net.caseif.flint.steel.SteelMain;
+import net.caseif.flint.steel.challenger.ChallengerIndex;
+import net.caseif.flint.steel.challenger.SteelChallenger;
+import net.caseif.flint.steel.round.BoundaryEnforcer;
+import net.caseif.flint.steel.util.agent.chat.ChatRoutingTable;
 import net.caseif.flint.steel.util.helper.LocationHelper;
 import net.caseif.flint.util.physical.Boundary;
 
 import com.google.common.base.Optional;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
+import org.bukkit.Location;
 import org.bukkit.block.Block;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
@@ -55,10 +57,13 @@ import org.bukkit.event.inventory.InventoryInteractEvent;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.inventory.InventoryHolder;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -75,12 +80,14 @@ public class PlayerWorldListener implements Listener {
                 || event.getFrom().getY() != event.getTo().getY()
                 || event.getFrom().getZ() != event.getTo().getZ()) {
             // begin the hunt for the challenger
-            Optional<Challenger> challenger = CommonCore.getChallenger(event.getPlayer().getUniqueId());
+            Optional<Challenger> challenger = ChallengerIndex.get(event.getPlayer().getUniqueId());
             // check whether the player is in a round for this minigame
-            if (challenger.isPresent() && !((CommonChallenger) challenger.get()).isLeaving()) {
+            if (challenger.isPresent() && !((CommonChallenger) challenger.get()).isLeaving()
+                    && !((SteelChallenger) challenger.get()).isPendingTeleport()) {
                 Boundary bound = challenger.get().getRound().getArena().getBoundary();
                 // check whether the player is teleporting out of the arena boundary
-                if (!bound.contains(LocationHelper.convertLocation(event.getTo()))) {
+                Location to = event.getTo();
+                if (!LocationHelper.contains(bound, to.getWorld().getName(), to.getX(), to.getY(), to.getZ())) {
                     if (challenger.get().getRound().getConfigValue(ConfigNode.ALLOW_EXIT_BOUNDARY)) {
                         challenger.get().removeFromRound();
                     } else {
@@ -91,39 +98,94 @@ public class PlayerWorldListener implements Listener {
         }
     }
 
-    @EventHandler(priority = EventPriority.LOW)
-    public void onPlayerChat(AsyncPlayerChatEvent event) {
-        // iterate minigames
-        for (Minigame mg : SteelCore.getMinigames().values()) {
-            // get the wizard manager for the minigame
-            IWizardManager wm = ((SteelMinigame) mg).getLobbyWizardManager();
-            // check if the player is in a wizard
-            if (wm.hasPlayer(event.getPlayer().getUniqueId())) {
-                event.setCancelled(true); // cancel the event
-                // send the original message for reference
-                event.getPlayer().sendMessage("<" + event.getPlayer().getDisplayName() + "> " + event.getMessage());
-                // feed the message to the wizard manager and get the response
-                String[] response = wm.accept(event.getPlayer().getUniqueId(), event.getMessage());
-                event.getPlayer().sendMessage(response); // pass the response on to the player
-                return; // no need to do any more checks for the event
-            }
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        Optional<Challenger> challenger = ChallengerIndex.get(event.getPlayer().getUniqueId());
+        if (!challenger.isPresent() || ((CommonChallenger) challenger.get()).isLeaving()
+                || ((SteelChallenger) challenger.get()).isPendingTeleport()) {
+            return;
+        }
 
-            Iterator<Player> it = event.getRecipients().iterator();
-            while (it.hasNext()) {
-                Player recip = it.next();
+        Boundary bound = challenger.get().getRound().getArena().getBoundary();
+        Location to = event.getTo();
+        Location from = event.getFrom();
+        if (to.getBlockX() == from.getBlockX() && to.getBlockY() == from.getBlockY()
+                && to.getBlockZ() == from.getBlockZ()
+                && LocationHelper.containsBlock(bound, to.getWorld().getName(), to.getBlockX(), to.getBlockY(),
+                        to.getBlockZ())) {
+            return; // still in a block which no face of the boundary passes through
+        }
 
-                if (((SteelMinigame) mg).getLobbyWizardManager().hasPlayer(recip.getUniqueId())) {
-                    ((SteelMinigame) mg).getLobbyWizardManager().withholdMessage(recip.getUniqueId(),
-                            event.getPlayer().getDisplayName(), event.getMessage());
-                    it.remove();
-                    continue;
-                }
+        if (LocationHelper.contains(bound, to.getWorld().getName(), to.getX(), to.getY(), to.getZ())) {
+            return;
+        }
+
+        Location target = BoundaryEnforcer.enforce(challenger.get(), event.getPlayer(), to.getX(), to.getY(),
+                to.getZ(), to.getYaw(), to.getPitch());
+        if (target != null) {
+            event.setTo(target);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOW)
+    public void onPlayerChat(final AsyncPlayerChatEvent event) {
+        // this is usually called off the main thread, so only the routing table's snapshot may be consulted here
+        final Player sender = event.getPlayer();
+        final String message = event.getMessage();
 
-                if (ChatHelper.isBarrierPresent(event.getPlayer(), recip)) {
-                    it.remove();
+        // check if the player is in a wizard
+        final Optional<IWizardManager> senderWm = ChatRoutingTable.getWizardManager(sender.getUniqueId());
+        if (senderWm.isPresent()) {
+            event.setCancelled(true); // cancel the event
+            runOnMainThread(event, new Runnable() {
+                @Override
+                public void run() {
+                    // send the original message for reference
+                    sender.sendMessage("<" + sender.getDisplayName() + "> " + message);
+                    // feed the message to the wizard manager and get the response
+                    String[] response = senderWm.get().accept(sender.getUniqueId(), message);
+                    sender.sendMessage(response); // pass the response on to the player
                 }
+            });
+            return; // no need to do any more checks for the event
+        }
+
+        ChatRoutingTable.Route route = ChatRoutingTable.getRoute(sender.getUniqueId());
+        final List<UUID> withheldFrom = new ArrayList<>();
+        Iterator<Player> it = event.getRecipients().iterator();
+        while (it.hasNext()) {
+            Player recip = it.next();
+
+            if (ChatRoutingTable.getWizardManager(recip.getUniqueId()).isPresent()) {
+                withheldFrom.add(recip.getUniqueId());
+                it.remove();
+            } else if (!route.allows(recip.getUniqueId())) {
+                it.remove();
             }
         }
+
+        if (!withheldFrom.isEmpty()) {
+            final String displayName = sender.getDisplayName();
+            runOnMainThread(event, new Runnable() {
+                @Override
+                public void run() {
+                    for (UUID uuid : withheldFrom) {
+                        Optional<IWizardManager> wm = ChatRoutingTable.getWizardManager(uuid);
+                        if (wm.isPresent()) {
+                            wm.get().withholdMessage(uuid, displayName, message);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    private static void runOnMainThread(AsyncPlayerChatEvent event, Runnable task) {
+        if (event.isAsynchronous()) {
+            Bukkit.getScheduler().runTask(SteelMain.getInstance(), task);
+        } else {
+            task.run();
+        }
     }
 
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
@@ -132,8 +194,8 @@ public class PlayerWorldListener implements Listener {
         // check that both parties involved are playes
         if (event.getEntity().getType() == EntityType.PLAYER && event.getDamager().getType() == EntityType.PLAYER) {
             // begin the hunt for the challenger
-            Optional<Challenger> challenger = CommonCore.getChallenger(event.getEntity().getUniqueId());
-            Optional<Challenger> damager = CommonCore.getChallenger(event.getDamager().getUniqueId());
+            Optional<Challenger> challenger = ChallengerIndex.get(event.getEntity().getUniqueId());
+            Optional<Challenger> damager = ChallengerIndex.get(event.getDamager().getUniqueId());
             // cancel if one of them is spectating
             if ((challenger.isPresent() && challenger.get().isSpectating())
                     || (damager.isPresent() && damager.get().isSpectating())) {
@@ -214,7 +276,7 @@ public class PlayerWorldListener implements Listener {
             } else {
                 uuid = pl.getUniqueId();
             }
-            if (CommonCore.getChallenger(uuid).isPresent()) {
+            if (ChallengerIndex.get(uuid).isPresent()) {
                 //TODO: figure out a better way to solve this than by disabling it
                 event.setCancelled(true);
                 event.getPlayer().sendMessage(ChatColor.RED
@@ -223,7 +285,7 @@ public class PlayerWorldListener implements Listener {
             }
         }
 
-        Optional<Challenger> ch = CommonCore.getChallenger(event.getPlayer().getUniqueId());
+        Optional<Challenger> ch = ChallengerIndex.get(event.getPlayer().getUniqueId());
         if (ch.isPresent()) {
             if (ch.get().getRound().getConfigValue(ConfigNode.FORBIDDEN_COMMANDS)
                     .contains(event.getMessage().split(" ")[0].substring(1))) {
@@ -236,7 +298,7 @@ public class PlayerWorldListener implements Listener {
 
     private void processEvent(Cancellable event, Player player) {
         if (!SteelCore.SPECTATOR_SUPPORT) {
-            Optional<Challenger> ch = CommonCore.getChallenger(player.getUniqueId());
+            Optional<Challenger> ch = ChallengerIndex.get(player.getUniqueId());
             if (ch.isPresent() && ch.get().isSpectating()) {
                 event.setCancelled(true);
                 return;
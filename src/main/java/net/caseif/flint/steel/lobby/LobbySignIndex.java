@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.lobby;
+
+import net.caseif.flint.lobby.LobbySign;
+import net.caseif.flint.util.physical.Location3D;
+
+import com.google.common.base.Optional;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Global index of {@link LobbySign}s by block location, allowing sign events
+ * to be resolved without querying every arena of every minigame.
+ *
+ * <p>Signs are indexed when constructed (whether newly created or loaded from
+ * storage) and removed when unregistered or when their arena is removed.</p>
+ */
+public final class LobbySignIndex {
+
+    private static final ConcurrentMap<Location3D, LobbySign> SIGNS = new ConcurrentHashMap<>();
+
+    private LobbySignIndex() {
+    }
+
+    /**
+     * Gets the {@link LobbySign} at the given location, if any.
+     *
+     * @param location The block location to look up
+     * @return The {@link LobbySign} at the given location, or
+     *     {@link Optional#absent()} if there is none
+     */
+    public static Optional<LobbySign> get(Location3D location) {
+        return Optional.fromNullable(SIGNS.get(location));
+    }
+
+    /**
+     * Adds the given {@link LobbySign} to the index.
+     *
+     * @param sign The {@link LobbySign} to add
+     */
+    static void add(LobbySign sign) {
+        SIGNS.put(sign.getLocation(), sign);
+    }
+
+    /**
+     * Removes the given {@link LobbySign} from the index, if it is still the
+     * indexed sign for its location.
+     *
+     * @param sign The {@link LobbySign} to remove
+     */
+    public static void remove(LobbySign sign) {
+        SIGNS.remove(sign.getLocation(), sign);
+    }
+
+}
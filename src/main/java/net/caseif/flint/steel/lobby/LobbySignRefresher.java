@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.lobby;
+
+import net.caseif.flint.component.exception.OrphanedComponentException;
+import net.caseif.flint.steel.SteelCore;
+import net.caseif.flint.steel.SteelMain;
+
+import org.bukkit.Bukkit;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Coalesces lobby sign updates so that each dirty sign is rendered at most
+ * once per refresh interval.
+ */
+final class LobbySignRefresher {
+
+    private static final Set<SteelLobbySign> DIRTY = new LinkedHashSet<>();
+    private static boolean scheduled;
+
+    private static final Runnable FLUSH = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private LobbySignRefresher() {
+    }
+
+    /**
+     * Marks the given sign as needing to be rendered, scheduling a refresh if
+     * one is not already pending.
+     *
+     * @param sign The sign to mark
+     */
+    static synchronized void markDirty(SteelLobbySign sign) {
+        DIRTY.add(sign);
+        if (!scheduled) {
+            scheduled = true;
+            Bukkit.getScheduler().runTaskLater(SteelMain.getInstance(), FLUSH, SteelCore.getSignRefreshInterval());
+        }
+    }
+
+    private static void flush() {
+        List<SteelLobbySign> signs;
+        synchronized (LobbySignRefresher.class) {
+            signs = new ArrayList<>(DIRTY);
+            DIRTY.clear();
+            scheduled = false;
+        }
+
+        for (SteelLobbySign sign : signs) {
+            try {
+                sign.render();
+            } catch (OrphanedComponentException ex) {
+                // sign was unregistered after being marked
+            } catch (RuntimeException ex) {
+                SteelCore.logSevere("Failed to update lobby sign at " + sign.getLocation().toString());
+                ex.printStackTrace();
+            }
+        }
+    }
+
+}
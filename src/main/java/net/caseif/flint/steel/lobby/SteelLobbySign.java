@@ -28,7 +28,6 @@ import net.caseif.flint.common.arena.CommonArena;
 import net.caseif.flint.common.lobby.CommonLobbySign;
 import net.caseif.flint.lobby.LobbySign;
 import net.caseif.flint.steel.SteelCore;
-import net.caseif.flint.steel.SteelMain;
 import net.caseif.flint.steel.util.helper.LocationHelper;
 import net.caseif.flint.util.physical.Location3D;
 
@@ -37,6 +36,8 @@ import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.Sign;
 
+import java.util.Arrays;
+
 /**
  * Implements {@link LobbySign}.
  *
@@ -48,23 +49,39 @@ public abstract class SteelLobbySign extends CommonLobbySign {
 
     public SteelLobbySign(Location3D location, CommonArena arena, Type type) {
         super(location, arena, type);
-        Bukkit.getScheduler().runTask(SteelMain.getInstance(), new Runnable() {
-            @Override
-            public void run() {
-                SteelLobbySign.this.update();
-            }
-        });
+        LobbySignIndex.add(this);
+        LobbySignRefresher.markDirty(this);
+    }
+
+    /**
+     * Marks this sign as dirty. The physical sign is redrawn on the next
+     * refresh, however many times this is called before then.
+     */
+    @Override
+    public void update() {
+        checkState();
+        LobbySignRefresher.markDirty(this);
+    }
+
+    /**
+     * Renders this sign's current contents to the physical sign, or to nearby
+     * players if virtual lobby signs are enabled.
+     */
+    void render() {
+        super.update();
     }
 
     @Override
     public void unregister() {
+        LobbySignIndex.remove(this);
         super.unregister();
+        VirtualSignRenderer.forget(this);
         // blank the physical sign block
         World world = Bukkit.getWorld(getLocation().getWorld().get());
         if (world == null) {
             SteelCore.logVerbose("Cannot blank unregistered lobby sign: world is not loaded");
         }
-        Block block = LocationHelper.convertLocation(getLocation()).getBlock();
+        Block block = LocationHelper.getBlock(getLocation());
         if (block.getState() instanceof Sign) {
             for (int i = 0; i < ((Sign) block.getState()).getLines().length; i++) {
                 ((Sign) block.getState()).setLine(i, "");
@@ -76,19 +93,24 @@ public abstract class SteelLobbySign extends CommonLobbySign {
     protected void updatePhysicalSign(String... lines) {
         assert lines.length == getSignSize();
 
-        Block block = LocationHelper.convertLocation(getLocation()).getBlock();
+        if (SteelCore.useVirtualLobbySigns()) {
+            VirtualSignRenderer.render(this, lines);
+            return;
+        }
+
+        Block block = LocationHelper.getBlock(getLocation());
         if (block.getState() instanceof Sign) {
-            final Sign sign = (Sign) block.getState();
+            Sign sign = (Sign) block.getState();
+            // compare against the block itself, since anything else may have edited or replaced it
+            if (Arrays.equals(lines, sign.getLines())) {
+                return;
+            }
 
             for (int i = 0; i < getSignSize(); i++) {
                 sign.setLine(i, lines[i]);
             }
 
-            Bukkit.getScheduler().runTask(SteelMain.getInstance(), new Runnable() {
-                public void run() {
-                    sign.update(true);
-                }
-            });
+            sign.update(true);
         }
     }
 
@@ -0,0 +1,174 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.lobby;
+
+import net.caseif.flint.steel.SteelMain;
+import net.caseif.flint.util.physical.Location3D;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Renders lobby sign text to nearby players via sign change packets instead
+ * of writing to the sign block, so that updates cause no world writes.
+ *
+ * <p>The lines last sent to each viewer are tracked so that a text change
+ * is only sent to viewers holding stale text. The client replaces the text
+ * with the real block's whenever the sign's chunk is resent to it (on
+ * respawning, changing worlds or coming back within view distance), which
+ * the server does not report, so a periodic sweep resends the current text
+ * to every player in range regardless of what was last sent to them.</p>
+ *
+ * <p>All methods must be called from the main thread.</p>
+ */
+final class VirtualSignRenderer {
+
+    // how far from a sign (in blocks) a player may be to receive its text
+    private static final int VIEW_RANGE = 64;
+    private static final int VIEW_RANGE_SQUARED = VIEW_RANGE * VIEW_RANGE;
+    // how often (in ticks) the text is resent to every viewer in range
+    private static final long SWEEP_INTERVAL = 20L;
+
+    private static final Map<SteelLobbySign, View> VIEWS = new IdentityHashMap<>();
+    private static final Location PLAYER_LOC = new Location(null, 0, 0, 0);
+
+    private static BukkitTask sweepTask;
+
+    private VirtualSignRenderer() {
+    }
+
+    /**
+     * Sets the text shown for the given sign and sends it to every viewer in
+     * range which does not already have it.
+     *
+     * @param sign The sign to render
+     * @param lines The lines to display on the sign
+     */
+    static void render(SteelLobbySign sign, String[] lines) {
+        View view = VIEWS.get(sign);
+        if (view == null) {
+            view = new View(sign.getLocation());
+            VIEWS.put(sign, view);
+        } else if (Arrays.equals(view.lines, lines)) {
+            return; // every viewer in range already has this text, or will on the next sweep
+        }
+        view.lines = lines.clone();
+        view.refresh(false);
+
+        if (sweepTask == null) {
+            sweepTask = Bukkit.getScheduler().runTaskTimer(SteelMain.getInstance(), new Runnable() {
+                @Override
+                public void run() {
+                    sweep();
+                }
+            }, SWEEP_INTERVAL, SWEEP_INTERVAL);
+        }
+    }
+
+    /**
+     * Stops rendering the given sign, blanking it for every player it was
+     * last sent to.
+     *
+     * @param sign The sign to stop rendering
+     */
+    static void forget(SteelLobbySign sign) {
+        View view = VIEWS.remove(sign);
+        if (view != null) {
+            view.lines = new String[view.lines.length];
+            Arrays.fill(view.lines, "");
+            for (UUID uuid : view.sent.keySet()) {
+                Player player = Bukkit.getPlayer(uuid);
+                if (player != null) {
+                    player.sendSignChange(view.location, view.lines);
+                }
+            }
+        }
+
+        if (VIEWS.isEmpty() && sweepTask != null) {
+            sweepTask.cancel();
+            sweepTask = null;
+        }
+    }
+
+    private static void sweep() {
+        for (View view : VIEWS.values()) {
+            view.refresh(true);
+        }
+        PLAYER_LOC.setWorld(null); // don't hold on to the world between sweeps
+    }
+
+    private static class View {
+
+        private final String worldName;
+        private final Location location;
+        // lines last sent to each viewer currently in range
+        private final Map<UUID, String[]> sent = new HashMap<>();
+        private String[] lines;
+
+        private View(Location3D location) {
+            this.worldName = location.getWorld().get();
+            this.location = new Location(null, Math.floor(location.getX()), Math.floor(location.getY()),
+                    Math.floor(location.getZ()));
+        }
+
+        private void refresh(boolean resend) {
+            World world = Bukkit.getWorld(worldName);
+            if (world == null) {
+                sent.clear();
+                return;
+            }
+            location.setWorld(world);
+
+            Set<UUID> inRange = new HashSet<>();
+            for (Player player : world.getPlayers()) {
+                player.getLocation(PLAYER_LOC);
+                if (PLAYER_LOC.distanceSquared(location) > VIEW_RANGE_SQUARED) {
+                    continue;
+                }
+
+                UUID uuid = player.getUniqueId();
+                inRange.add(uuid);
+                if (resend || !Arrays.equals(sent.get(uuid), lines)) {
+                    player.sendSignChange(location, lines);
+                    sent.put(uuid, lines);
+                }
+            }
+            sent.keySet().retainAll(inRange);
+        }
+
+    }
+
+}
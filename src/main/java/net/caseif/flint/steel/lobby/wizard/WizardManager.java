@@ -28,8 +28,11 @@ import net.caseif.flint.common.CommonCore;
 import net.caseif.flint.common.lobby.wizard.CommonWizardManager;
 import net.caseif.flint.common.lobby.wizard.WizardMessages;
 import net.caseif.flint.minigame.Minigame;
+import net.caseif.flint.steel.util.agent.chat.ChatRoutingTable;
 import net.caseif.flint.util.physical.Location3D;
 
+import com.google.common.collect.ImmutableSet;
+
 import java.util.UUID;
 
 /**
@@ -50,11 +53,34 @@ public class WizardManager extends CommonWizardManager {
     public void addPlayer(UUID uuid, Location3D location) {
         assert !wizardPlayers.containsKey(uuid);
         wizardPlayers.put(uuid, new WizardPlayer(uuid, location, this));
+        ChatRoutingTable.invalidate();
         //TODO: possibly add assertion that player is valid?
         CommonCore.getChatAgent().processAndSend(uuid, WizardMessages.WELCOME, WizardMessages.CHAT_WITHHOLDING,
                 WizardMessages.DIVIDER, WizardMessages.GET_ARENA);
     }
 
+    @Override
+    public void removePlayer(UUID uuid) {
+        super.removePlayer(uuid);
+        ChatRoutingTable.invalidate();
+    }
+
+    @Override
+    public String[] accept(UUID uuid, String input) {
+        String[] response = super.accept(uuid, input);
+        ChatRoutingTable.invalidate(); // the wizard may have finished
+        return response;
+    }
+
+    /**
+     * Returns the UUIDs of all players currently using this wizard.
+     *
+     * @return The UUIDs of all players currently using this wizard
+     */
+    public ImmutableSet<UUID> getPlayers() {
+        return ImmutableSet.copyOf(wizardPlayers.keySet());
+    }
+
     //               _,._
     //   .||,       /_ _\\
     //  \.`',/      |'L'| |
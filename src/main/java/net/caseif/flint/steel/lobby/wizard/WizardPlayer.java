@@ -83,13 +83,14 @@ class WizardPlayer extends CommonWizardPlayer {
     @Override
     @SuppressWarnings("deprecation")
     protected void recordTargetBlockState() {
-        assert LocationHelper.convertLocation(location).getBlock().getState() instanceof Sign;
-        this.origMaterial = LocationHelper.convertLocation(location).getBlock().getType();
+        Block block = LocationHelper.getBlock(location);
+        assert block.getState() instanceof Sign;
+        this.origMaterial = block.getType();
 
         if (SteelCore.isLegacy()) {
-            this.origLegacyData = LocationHelper.convertLocation(location).getBlock().getState().getRawData();
+            this.origLegacyData = block.getState().getRawData();
         } else {
-            this.origBlockData = LocationHelper.convertLocation(location).getBlock().getBlockData();
+            this.origBlockData = block.getBlockData();
         }
     }
 
@@ -98,7 +99,7 @@ class WizardPlayer extends CommonWizardPlayer {
     protected void restoreTargetBlock() {
         Bukkit.getScheduler().runTask(SteelMain.getInstance(), new Runnable() {
             public void run() {
-                Block b = LocationHelper.convertLocation(getLocation()).getBlock();
+                Block b = LocationHelper.getBlock(getLocation());
                 b.setType(origMaterial);
 
                 if (SteelCore.isLegacy()) {
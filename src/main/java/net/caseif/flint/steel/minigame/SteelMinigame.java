@@ -28,16 +28,22 @@ import net.caseif.flint.arena.Arena;
 import net.caseif.flint.common.lobby.wizard.IWizardManager;
 import net.caseif.flint.common.minigame.CommonMinigame;
 import net.caseif.flint.common.util.factory.FactoryRegistry;
+import net.caseif.flint.config.ConfigNode;
+import net.caseif.flint.lobby.LobbySign;
 import net.caseif.flint.minigame.Minigame;
 import net.caseif.flint.steel.SteelCore;
+import net.caseif.flint.steel.arena.ArenaIndex;
 import net.caseif.flint.steel.arena.SteelArena;
+import net.caseif.flint.steel.lobby.LobbySignIndex;
 import net.caseif.flint.steel.lobby.wizard.WizardManager;
+import net.caseif.flint.steel.util.agent.chat.ChatRoutingTable;
 import net.caseif.flint.steel.util.compatibility.MinigameDataMigrationAgent;
 import net.caseif.flint.steel.util.factory.ArenaFactory;
 import net.caseif.flint.steel.util.file.SteelDataFiles;
 import net.caseif.flint.util.physical.Boundary;
 import net.caseif.flint.util.physical.Location3D;
 
+import com.google.common.base.Optional;
 import org.bukkit.Bukkit;
 import org.bukkit.World;
 import org.bukkit.block.Block;
@@ -45,6 +51,9 @@ import org.bukkit.block.Sign;
 import org.bukkit.plugin.Plugin;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Implements {@link Minigame}.
@@ -90,6 +99,37 @@ public class SteelMinigame extends CommonMinigame {
         return wizardManager;
     }
 
+    @Override
+    public <T> void setConfigValue(ConfigNode<T> node, T value) {
+        super.setConfigValue(node, value);
+        ChatRoutingTable.invalidate();
+    }
+
+    @Override
+    public void removeArena(String id) throws IllegalArgumentException {
+        Optional<Arena> arena = getArena(id);
+        List<LobbySign> signs = arena.isPresent()
+                ? new ArrayList<>(arena.get().getLobbySigns())
+                : Collections.<LobbySign>emptyList();
+        super.removeArena(id);
+        if (arena.isPresent()) {
+            ArenaIndex.unregister(arena.get());
+        }
+        for (LobbySign sign : signs) {
+            LobbySignIndex.remove(sign);
+        }
+    }
+
+    @Override
+    public void removeArena(Arena arena) throws IllegalArgumentException {
+        List<LobbySign> signs = new ArrayList<>(arena.getLobbySigns());
+        super.removeArena(arena);
+        ArenaIndex.unregister(arena);
+        for (LobbySign sign : signs) {
+            LobbySignIndex.remove(sign);
+        }
+    }
+
     protected int checkPhysicalLobbySign(Location3D loc) {
         if (loc.getWorld().isPresent()) {
             World w = Bukkit.getWorld(loc.getWorld().get());
@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.round;
+
+import net.caseif.flint.challenger.Challenger;
+import net.caseif.flint.config.ConfigNode;
+import net.caseif.flint.steel.challenger.ChallengerIndex;
+import net.caseif.flint.steel.util.helper.LocationHelper;
+import net.caseif.flint.util.physical.Boundary;
+import net.caseif.flint.util.physical.Location3D;
+
+import com.google.common.base.Optional;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+/**
+ * Keeps challengers within their arena's boundary.
+ *
+ * <p>Enforcement happens in two places: the movement listener, which checks
+ * challengers against the boundary whenever they move into a different
+ * block or move within a block that a face of the boundary passes through,
+ * and a periodic sweep over each round's position snapshot, which catches
+ * movement that fires no events.</p>
+ *
+ * <p>This class must only be accessed from the main server thread.</p>
+ */
+public final class BoundaryEnforcer {
+
+    private BoundaryEnforcer() {
+    }
+
+    /**
+     * Applies the given challenger's round's boundary policy to a location
+     * the challenger has been found at outside of the arena boundary.
+     *
+     * <p>If the round allows exiting the boundary, the challenger is removed
+     * from it. Otherwise, the location the player should be moved to is
+     * returned: the next spawn point if they have fallen out of the world, or
+     * else the nearest location within the boundary.</p>
+     *
+     * @param challenger The challenger outside the boundary
+     * @param player The challenger's player
+     * @param x The x-coordinate of the challenger
+     * @param y The y-coordinate of the challenger
+     * @param z The z-coordinate of the challenger
+     * @param yaw The yaw of the challenger
+     * @param pitch The pitch of the challenger
+     * @return The location to move the player to, or {@code null} if they were
+     *     removed from the round instead
+     */
+    public static Location enforce(Challenger challenger, Player player, double x, double y, double z,
+            float yaw, float pitch) {
+        if (challenger.getRound().getConfigValue(ConfigNode.ALLOW_EXIT_BOUNDARY)) {
+            challenger.removeFromRound();
+            return null;
+        } else if (y < 0) {
+            Location3D nextSpawn = challenger.getRound().nextSpawnPoint();
+            player.setFallDistance(0);
+            return new Location(player.getWorld(), nextSpawn.getX(), nextSpawn.getY(), nextSpawn.getZ(), yaw, pitch);
+        } else {
+            Boundary bound = challenger.getRound().getArena().getBoundary();
+            Location3D lower = bound.getLowerBound();
+            Location3D upper = bound.getUpperBound();
+            x = x > upper.getX() ? upper.getX() : x < lower.getX() ? lower.getX() : x;
+            y = y > upper.getY() ? upper.getY() : y < lower.getY() ? lower.getY() : y;
+            z = z > upper.getZ() ? upper.getZ() : z < lower.getZ() ? lower.getZ() : z;
+            return new Location(player.getWorld(), x, y, z, yaw, pitch);
+        }
+    }
+
+    /**
+     * Checks every challenger in the given round against its boundary.
+     *
+     * @param round The round to sweep
+     */
+    static void sweep(SteelRound round) {
+        Boundary bound = round.getArena().getBoundary();
+        PositionSnapshot positions = round.getPositionSnapshot();
+        boolean moved = false;
+        for (int i = 0; i < positions.size(); i++) {
+            double x = positions.getX(i);
+            double y = positions.getY(i);
+            double z = positions.getZ(i);
+            if (LocationHelper.contains(bound, positions.getWorld(i), x, y, z)) {
+                continue;
+            }
+
+            Optional<Challenger> challenger = ChallengerIndex.get(positions.getUniqueId(i));
+            Player player = Bukkit.getPlayer(positions.getUniqueId(i));
+            if (!challenger.isPresent() || player == null) {
+                continue; // left since the snapshot was captured
+            }
+
+            Location target = enforce(challenger.get(), player, x, y, z, positions.getYaw(i), positions.getPitch(i));
+            if (target != null) {
+                player.teleport(target);
+                moved = true;
+            }
+        }
+        if (moved) {
+            round.invalidatePositionSnapshot();
+        }
+    }
+
+}
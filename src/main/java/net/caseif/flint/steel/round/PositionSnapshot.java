@@ -0,0 +1,244 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.round;
+
+import net.caseif.flint.challenger.Challenger;
+import net.caseif.flint.common.challenger.CommonChallenger;
+import net.caseif.flint.steel.challenger.SteelChallenger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * An immutable frame of the positions of a round's challengers, captured at
+ * a single tick.
+ *
+ * <p>Challengers are addressed by slot, from {@code 0} (inclusive) to
+ * {@link #size()} (exclusive). Slots are only meaningful within a single
+ * snapshot. Challengers who are leaving the round, are still waiting to be
+ * teleported into the arena, or are offline are not included.</p>
+ *
+ * <p>Snapshots never touch the Bukkit API once captured and may be read
+ * from any thread.</p>
+ */
+public final class PositionSnapshot {
+
+    static final PositionSnapshot EMPTY = new PositionSnapshot(-1, 0, new UUID[0], new String[0], new double[0],
+            new double[0], new double[0], new float[0], new float[0]);
+
+    private final long tick;
+    private final int size;
+    private final UUID[] uuids;
+    private final String[] worlds;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final float[] yaws;
+    private final float[] pitches;
+
+    PositionSnapshot(long tick, int size, UUID[] uuids, String[] worlds, double[] xs, double[] ys,
+            double[] zs, float[] yaws, float[] pitches) {
+        this.tick = tick;
+        this.size = size;
+        this.uuids = uuids;
+        this.worlds = worlds;
+        this.xs = xs;
+        this.ys = ys;
+        this.zs = zs;
+        this.yaws = yaws;
+        this.pitches = pitches;
+    }
+
+    /**
+     * Captures the current positions of the given challengers. This must be
+     * called from the main thread.
+     *
+     * @param challengers The challengers to capture
+     * @param tick The tick the capture is taking place on
+     * @return The new snapshot
+     */
+    static PositionSnapshot capture(Collection<Challenger> challengers, long tick) {
+        int capacity = challengers.size();
+        UUID[] uuids = new UUID[capacity];
+        String[] worlds = new String[capacity];
+        double[] xs = new double[capacity];
+        double[] ys = new double[capacity];
+        double[] zs = new double[capacity];
+        float[] yaws = new float[capacity];
+        float[] pitches = new float[capacity];
+
+        Location loc = new Location(null, 0, 0, 0);
+        int size = 0;
+        for (Challenger challenger : challengers) {
+            if (((CommonChallenger) challenger).isLeaving() || ((SteelChallenger) challenger).isPendingTeleport()) {
+                continue;
+            }
+            Player player = Bukkit.getPlayer(challenger.getUniqueId());
+            if (player == null) {
+                continue;
+            }
+            player.getLocation(loc);
+            uuids[size] = challenger.getUniqueId();
+            worlds[size] = loc.getWorld().getName();
+            xs[size] = loc.getX();
+            ys[size] = loc.getY();
+            zs[size] = loc.getZ();
+            yaws[size] = loc.getYaw();
+            pitches[size] = loc.getPitch();
+            size++;
+        }
+        return new PositionSnapshot(tick, size, uuids, worlds, xs, ys, zs, yaws, pitches);
+    }
+
+    /**
+     * Gets the tick this snapshot was captured on, as counted by the
+     * {@link RoundTicker}.
+     *
+     * @return The tick this snapshot was captured on
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Gets the number of challengers in this snapshot.
+     *
+     * @return The number of challengers in this snapshot
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the slot of the challenger with the given UUID.
+     *
+     * @param uuid The UUID of the challenger to look up
+     * @return The slot of the challenger, or {@code -1} if they are not
+     *     included in this snapshot
+     */
+    public int indexOf(UUID uuid) {
+        for (int i = 0; i < size; i++) {
+            if (uuids[i].equals(uuid)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the UUID of the challenger in the given slot.
+     *
+     * @param slot The slot to read
+     * @return The UUID of the challenger in the given slot
+     * @throws IndexOutOfBoundsException If the slot is out of bounds
+     */
+    public UUID getUniqueId(int slot) {
+        checkSlot(slot);
+        return uuids[slot];
+    }
+
+    /**
+     * Gets the name of the world of the challenger in the given slot.
+     *
+     * @param slot The slot to read
+     * @return The name of the world of the challenger in the given slot
+     * @throws IndexOutOfBoundsException If the slot is out of bounds
+     */
+    public String getWorld(int slot) {
+        checkSlot(slot);
+        return worlds[slot];
+    }
+
+    /**
+     * Gets the x-coordinate of the challenger in the given slot.
+     *
+     * @param slot The slot to read
+     * @return The x-coordinate of the challenger in the given slot
+     * @throws IndexOutOfBoundsException If the slot is out of bounds
+     */
+    public double getX(int slot) {
+        checkSlot(slot);
+        return xs[slot];
+    }
+
+    /**
+     * Gets the y-coordinate of the challenger in the given slot.
+     *
+     * @param slot The slot to read
+     * @return The y-coordinate of the challenger in the given slot
+     * @throws IndexOutOfBoundsException If the slot is out of bounds
+     */
+    public double getY(int slot) {
+        checkSlot(slot);
+        return ys[slot];
+    }
+
+    /**
+     * Gets the z-coordinate of the challenger in the given slot.
+     *
+     * @param slot The slot to read
+     * @return The z-coordinate of the challenger in the given slot
+     * @throws IndexOutOfBoundsException If the slot is out of bounds
+     */
+    public double getZ(int slot) {
+        checkSlot(slot);
+        return zs[slot];
+    }
+
+    /**
+     * Gets the yaw of the challenger in the given slot.
+     *
+     * @param slot The slot to read
+     * @return The yaw of the challenger in the given slot
+     * @throws IndexOutOfBoundsException If the slot is out of bounds
+     */
+    public float getYaw(int slot) {
+        checkSlot(slot);
+        return yaws[slot];
+    }
+
+    /**
+     * Gets the pitch of the challenger in the given slot.
+     *
+     * @param slot The slot to read
+     * @return The pitch of the challenger in the given slot
+     * @throws IndexOutOfBoundsException If the slot is out of bounds
+     */
+    public float getPitch(int slot) {
+        checkSlot(slot);
+        return pitches[slot];
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " out of bounds for snapshot of size " + size);
+        }
+    }
+
+}
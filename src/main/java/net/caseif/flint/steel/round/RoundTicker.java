@@ -0,0 +1,210 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.round;
+
+import net.caseif.flint.steel.SteelCore;
+import net.caseif.flint.steel.SteelMain;
+
+import org.bukkit.Bukkit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Drives every active {@link SteelRound} from a single repeating task.
+ *
+ * <p>Rounds are kept in flat arrays and given a phase offset as they are
+ * added, so that rounds are spread evenly across the ticks of each period
+ * rather than all being worked on the same tick. The time spent on each
+ * round is tracked as a moving average.</p>
+ *
+ * <p>The ticker also owns Steel's tick counter. Position snapshots are
+ * otherwise captured lazily by their first reader in each tick, but rounds
+ * whose snapshot has been read off the main thread have one captured at the
+ * start of each tick so that those readers always have a current frame.</p>
+ *
+ * <p>This class must only be accessed from the main server thread.</p>
+ */
+final class RoundTicker implements Runnable {
+
+    // ticks between runs of each round's worker (which counts down the round timer in seconds)
+    private static final int WORKER_PERIOD = 20;
+    // per-round ticks slower than this are logged
+    private static final long SLOW_TICK_NANOS = 5_000_000L;
+    // weight of the latest sample in each round's moving average cost
+    private static final double COST_SMOOTHING = 0.1;
+
+    private static final RoundTicker INSTANCE = new RoundTicker();
+
+    private static SteelRound[] rounds = new SteelRound[16];
+    private static SteelRoundWorker[] workers = new SteelRoundWorker[16];
+    private static int[] phases = new int[16];
+    private static double[] costs = new double[16];
+    private static int size;
+
+    private static int nextPhase;
+    private static long tick;
+    private static int taskHandle = -1;
+
+    // rounds removed while ticking, compacted once the tick finishes
+    private static boolean ticking;
+    private static final List<SteelRound> pendingRemovals = new ArrayList<>();
+
+    private RoundTicker() {
+    }
+
+    /**
+     * Adds the given round to the ticker, starting the ticker if necessary.
+     *
+     * @param round The round to add
+     * @param worker The worker to run for the round
+     */
+    static void add(SteelRound round, SteelRoundWorker worker) {
+        if (size == rounds.length) {
+            int capacity = rounds.length * 2;
+            rounds = Arrays.copyOf(rounds, capacity);
+            workers = Arrays.copyOf(workers, capacity);
+            phases = Arrays.copyOf(phases, capacity);
+            costs = Arrays.copyOf(costs, capacity);
+        }
+        rounds[size] = round;
+        workers[size] = worker;
+        phases[size] = nextPhase;
+        costs[size] = 0;
+        round.tickerSlot = size;
+        size++;
+        nextPhase = (nextPhase + 1) % WORKER_PERIOD;
+
+        if (taskHandle == -1) {
+            taskHandle = Bukkit.getScheduler().scheduleSyncRepeatingTask(SteelMain.getInstance(), INSTANCE, 1L, 1L);
+        }
+    }
+
+    /**
+     * Removes the given round from the ticker if present. This is a
+     * constant-time operation.
+     *
+     * @param round The round to remove
+     */
+    static void remove(SteelRound round) {
+        if (round.tickerSlot == -1) {
+            return;
+        }
+        if (ticking) {
+            pendingRemovals.add(round);
+            return;
+        }
+
+        int slot = round.tickerSlot;
+        int last = --size;
+        if (slot != last) {
+            rounds[slot] = rounds[last];
+            workers[slot] = workers[last];
+            phases[slot] = phases[last];
+            costs[slot] = costs[last];
+            rounds[slot].tickerSlot = slot;
+        }
+        rounds[last] = null;
+        workers[last] = null;
+        round.tickerSlot = -1;
+
+        if (size == 0 && taskHandle != -1) {
+            Bukkit.getScheduler().cancelTask(taskHandle);
+            taskHandle = -1;
+        }
+    }
+
+    /**
+     * Gets the number of ticks the ticker has run since Steel was enabled.
+     * The count does not advance while no rounds are active.
+     *
+     * @return The current tick
+     */
+    static long currentTick() {
+        return tick;
+    }
+
+    /**
+     * Gets the average time spent ticking the given round.
+     *
+     * @param round The round to look up
+     * @return The average per-tick cost of the round in nanoseconds, or
+     *     {@code 0} if it is not being ticked
+     */
+    static double getAverageCost(SteelRound round) {
+        return round.tickerSlot != -1 ? costs[round.tickerSlot] : 0;
+    }
+
+    @Override
+    public void run() {
+        tick++;
+        int sweepInterval = SteelCore.getBoundarySweepInterval();
+
+        ticking = true;
+        try {
+            for (int i = 0; i < size; i++) {
+                SteelRound round = rounds[i];
+                if (!pendingRemovals.isEmpty() && pendingRemovals.contains(round)) {
+                    continue; // ended earlier this tick
+                }
+                boolean work = (tick + phases[i]) % WORKER_PERIOD == 0;
+                boolean sweep = sweepInterval > 0 && (tick + phases[i]) % sweepInterval == 0;
+
+                String arenaId = round.getArena().getId(); // the round may be orphaned by the time we log
+                long start = System.nanoTime();
+                try {
+                    if (round.hasOffThreadReader()) {
+                        round.capturePositions(tick);
+                    }
+                    if (work) {
+                        workers[i].run();
+                    }
+                    if (sweep && !pendingRemovals.contains(round)) {
+                        BoundaryEnforcer.sweep(round);
+                    }
+                } catch (RuntimeException ex) {
+                    SteelCore.logSevere("Failed to tick round in arena " + arenaId);
+                    ex.printStackTrace();
+                }
+                long cost = System.nanoTime() - start;
+
+                costs[i] += (cost - costs[i]) * COST_SMOOTHING;
+                if (cost > SLOW_TICK_NANOS) {
+                    SteelCore.logVerbose("Round in arena " + arenaId + " took "
+                            + cost / 1_000_000L + "ms to tick");
+                }
+            }
+        } finally {
+            ticking = false;
+        }
+
+        for (SteelRound round : pendingRemovals) {
+            remove(round);
+        }
+        pendingRemovals.clear();
+    }
+
+}
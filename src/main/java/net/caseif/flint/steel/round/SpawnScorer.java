@@ -0,0 +1,105 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.round;
+
+import net.caseif.flint.arena.SpawningMode;
+
+/**
+ * Strategies for scoring candidate spawn points in
+ * {@link SpawningMode#PROXIMITY_HIGH} mode. The spawn point with the highest
+ * score is selected.
+ *
+ * <p>A score is built by folding the squared distance from the spawn point
+ * to each challenger into an accumulator, starting from
+ * {@link #initial()}. A score must never decrease when any one of the
+ * distances grows, so that scoring the farthest possible distances gives an
+ * upper bound for a whole group of spawn points.</p>
+ */
+public enum SpawnScorer {
+
+    /**
+     * Prefers the spawn point farthest on average from all challengers.
+     */
+    MAX_MEAN {
+        @Override
+        double initial() {
+            return 0;
+        }
+
+        @Override
+        double accumulate(double acc, double distanceSquared) {
+            return acc + Math.sqrt(distanceSquared);
+        }
+
+        @Override
+        double finish(double acc, int count) {
+            return acc / count;
+        }
+
+        @Override
+        boolean canBeat(double acc, double best) {
+            return true; // later distances may always raise the mean
+        }
+    },
+
+    /**
+     * Prefers the spawn point whose nearest challenger is farthest away.
+     */
+    MAX_MIN {
+        @Override
+        double initial() {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        @Override
+        double accumulate(double acc, double distanceSquared) {
+            return Math.min(acc, distanceSquared); // squared distances order the same way
+        }
+
+        @Override
+        double finish(double acc, int count) {
+            return acc;
+        }
+
+        @Override
+        boolean canBeat(double acc, double best) {
+            return acc >= best; // the minimum can only shrink from here
+        }
+    };
+
+    abstract double initial();
+
+    abstract double accumulate(double acc, double distanceSquared);
+
+    abstract double finish(double acc, int count);
+
+    /**
+     * Returns whether a partially accumulated score may still match or
+     * exceed the best finished score, allowing hopeless candidates to be
+     * abandoned early.
+     */
+    abstract boolean canBeat(double acc, double best);
+
+}
@@ -0,0 +1,264 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.round;
+
+import net.caseif.flint.arena.Arena;
+import net.caseif.flint.util.physical.Location3D;
+
+import com.google.common.collect.Iterables;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Selects spawn points far from a round's challengers.
+ *
+ * <p>Challenger positions are read from the round's {@link PositionSnapshot}
+ * and the ones in the arena's world are copied into primitive arrays. The
+ * arena's spawn points are bucketed into a grid of
+ * {@value #CELL_SIZE}-block cells, which is only rebuilt when the spawn
+ * points change. Each cell is first given an upper bound on the score of any
+ * spawn point inside it by scoring its bounding box's farthest corner from
+ * each challenger. Cells are then visited from the highest bound down, and
+ * once a cell's bound falls below the best score found so far, it and every
+ * remaining cell are skipped without scoring their spawn points.</p>
+ */
+final class SpawnSelector {
+
+    // edge length of a grid cell in blocks
+    private static final int CELL_SIZE = 16;
+
+    private final Random random = new Random();
+
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private double[] zs = new double[0];
+    private int count;
+
+    private Map<Integer, Location3D> gridSpawns;
+    private Cell[] cells = new Cell[0];
+    private double[] bounds = new double[0];
+    private int[] order = new int[0];
+
+    /**
+     * Selects the spawn point with the highest score for the given
+     * challenger positions, breaking ties randomly.
+     *
+     * @param arena The arena to select a spawn point from
+     * @param positions The challenger positions to score spawn points against
+     * @param scorer The scoring strategy to use
+     * @return The selected spawn point
+     */
+    Location3D select(Arena arena, PositionSnapshot positions, SpawnScorer scorer) {
+        return select(arena.getWorld(), arena.getSpawnPoints(), positions, scorer);
+    }
+
+    /**
+     * Selects the spawn point with the highest score for the given
+     * challenger positions from the given spawn points, breaking ties
+     * randomly.
+     *
+     * @param world The world of the spawn points
+     * @param spawns The spawn points to select from, keyed by ID
+     * @param positions The challenger positions to score spawn points against
+     * @param scorer The scoring strategy to use
+     * @return The selected spawn point
+     */
+    Location3D select(String world, Map<Integer, Location3D> spawns, PositionSnapshot positions,
+            SpawnScorer scorer) {
+        filter(world, positions);
+        if (count == 0) {
+            // just select a random spawn point
+            return Iterables.get(spawns.values(), random.nextInt(spawns.size()));
+        }
+
+        updateGrid(spawns);
+        boundCells(scorer);
+
+        Location3D best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        int ties = 0;
+        for (int c = 0; c < cells.length; c++) {
+            if (bounds[order[c]] < bestScore) {
+                break; // no spawn point in this or any later cell can reach the best score
+            }
+
+            Cell cell = cells[order[c]];
+            for (int j = 0; j < cell.spawns.length; j++) {
+                double sx = cell.xs[j];
+                double sy = cell.ys[j];
+                double sz = cell.zs[j];
+                double acc = scorer.initial();
+                boolean viable = true;
+                for (int i = 0; i < count; i++) {
+                    double dx = xs[i] - sx;
+                    double dy = ys[i] - sy;
+                    double dz = zs[i] - sz;
+                    acc = scorer.accumulate(acc, dx * dx + dy * dy + dz * dz);
+                    if (!scorer.canBeat(acc, bestScore)) {
+                        viable = false;
+                        break;
+                    }
+                }
+                if (!viable) {
+                    continue;
+                }
+
+                double score = scorer.finish(acc, count);
+                if (score > bestScore) {
+                    best = cell.spawns[j];
+                    bestScore = score;
+                    ties = 1;
+                } else if (score == bestScore && random.nextInt(++ties) == 0) {
+                    best = cell.spawns[j]; // keeps each tied spawn equally likely without collecting them
+                }
+            }
+        }
+        return best;
+    }
+
+    private void filter(String world, PositionSnapshot positions) {
+        if (xs.length < positions.size()) {
+            xs = new double[positions.size()];
+            ys = new double[positions.size()];
+            zs = new double[positions.size()];
+        }
+
+        count = 0;
+        for (int i = 0; i < positions.size(); i++) {
+            if (!positions.getWorld(i).equals(world)) {
+                continue;
+            }
+            xs[count] = positions.getX(i);
+            ys[count] = positions.getY(i);
+            zs[count] = positions.getZ(i);
+            count++;
+        }
+    }
+
+    // rebuckets the spawn points if they have changed since the grid was last built
+    private void updateGrid(Map<Integer, Location3D> spawns) {
+        if (spawns.equals(gridSpawns)) {
+            return;
+        }
+
+        Map<Long, List<Location3D>> buckets = new HashMap<>();
+        for (Location3D spawn : spawns.values()) {
+            long key = ((long) floorCell(spawn.getX()) & 0x1FFFFF) << 42
+                    | ((long) floorCell(spawn.getY()) & 0x1FFFFF) << 21
+                    | ((long) floorCell(spawn.getZ()) & 0x1FFFFF);
+            List<Location3D> bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                buckets.put(key, bucket);
+            }
+            bucket.add(spawn);
+        }
+
+        cells = new Cell[buckets.size()];
+        int i = 0;
+        for (List<Location3D> bucket : buckets.values()) {
+            cells[i++] = new Cell(bucket);
+        }
+        bounds = new double[cells.length];
+        order = new int[cells.length];
+        gridSpawns = spawns;
+    }
+
+    // computes the score bound of each cell and orders the cells by it, highest first
+    private void boundCells(SpawnScorer scorer) {
+        for (int c = 0; c < cells.length; c++) {
+            Cell cell = cells[c];
+            double acc = scorer.initial();
+            for (int i = 0; i < count; i++) {
+                acc = scorer.accumulate(acc, cell.maxDistanceSquared(xs[i], ys[i], zs[i]));
+            }
+            bounds[c] = scorer.finish(acc, count);
+
+            // insertion sort, since there are few cells and the order is usually similar to the last call's
+            int j = c;
+            while (j > 0 && bounds[order[j - 1]] < bounds[c]) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = c;
+        }
+    }
+
+    private static int floorCell(double coord) {
+        return (int) Math.floor(coord / CELL_SIZE);
+    }
+
+    /**
+     * A cell of the spawn grid, holding the spawn points inside it and their
+     * bounding box.
+     */
+    private static final class Cell {
+
+        private final Location3D[] spawns;
+        private final double[] xs;
+        private final double[] ys;
+        private final double[] zs;
+
+        private double minX = Double.POSITIVE_INFINITY;
+        private double minY = Double.POSITIVE_INFINITY;
+        private double minZ = Double.POSITIVE_INFINITY;
+        private double maxX = Double.NEGATIVE_INFINITY;
+        private double maxY = Double.NEGATIVE_INFINITY;
+        private double maxZ = Double.NEGATIVE_INFINITY;
+
+        private Cell(Collection<Location3D> spawns) {
+            this.spawns = spawns.toArray(new Location3D[spawns.size()]);
+            this.xs = new double[this.spawns.length];
+            this.ys = new double[this.spawns.length];
+            this.zs = new double[this.spawns.length];
+            for (int i = 0; i < this.spawns.length; i++) {
+                xs[i] = this.spawns[i].getX();
+                ys[i] = this.spawns[i].getY();
+                zs[i] = this.spawns[i].getZ();
+                minX = Math.min(minX, xs[i]);
+                minY = Math.min(minY, ys[i]);
+                minZ = Math.min(minZ, zs[i]);
+                maxX = Math.max(maxX, xs[i]);
+                maxY = Math.max(maxY, ys[i]);
+                maxZ = Math.max(maxZ, zs[i]);
+            }
+        }
+
+        // squared distance from the given point to the farthest corner of the bounding box
+        private double maxDistanceSquared(double x, double y, double z) {
+            double dx = Math.max(Math.abs(x - minX), Math.abs(x - maxX));
+            double dy = Math.max(Math.abs(y - minY), Math.abs(y - maxY));
+            double dz = Math.max(Math.abs(z - minZ), Math.abs(z - maxZ));
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+    }
+
+}
@@ -26,14 +26,12 @@ package net.caseif.flint.steel.round;
 
 import net.caseif.flint.arena.SpawningMode;
 import net.caseif.flint.challenger.Challenger;
-import net.caseif.flint.common.CommonCore;
 import net.caseif.flint.common.arena.CommonArena;
 import net.caseif.flint.common.challenger.CommonChallenger;
 import net.caseif.flint.common.event.round.challenger.CommonChallengerJoinRoundEvent;
 import net.caseif.flint.common.event.round.challenger.CommonChallengerLeaveRoundEvent;
 import net.caseif.flint.common.round.CommonJoinResult;
 import net.caseif.flint.common.round.CommonRound;
-import net.caseif.flint.common.util.helper.CommonPlayerHelper;
 import net.caseif.flint.component.exception.OrphanedComponentException;
 import net.caseif.flint.config.ConfigNode;
 import net.caseif.flint.lobby.LobbySign;
@@ -41,8 +39,11 @@ import net.caseif.flint.round.JoinResult;
 import net.caseif.flint.round.LifecycleStage;
 import net.caseif.flint.round.Round;
 import net.caseif.flint.steel.SteelCore;
+import net.caseif.flint.steel.arena.SteelArena;
+import net.caseif.flint.steel.challenger.ChallengerIndex;
 import net.caseif.flint.steel.challenger.SteelChallenger;
 import net.caseif.flint.steel.minigame.SteelMinigame;
+import net.caseif.flint.steel.util.agent.chat.ChatRoutingTable;
 import net.caseif.flint.steel.util.helper.LocationHelper;
 import net.caseif.flint.steel.util.helper.PlayerHelper;
 import net.caseif.flint.util.physical.Location3D;
@@ -50,15 +51,16 @@ import net.caseif.flint.util.physical.Location3D;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableSet;
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
 
 import java.io.IOException;
-import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
 
 /**
@@ -68,21 +70,21 @@ import java.util.UUID;
  */
 public class SteelRound extends CommonRound {
 
-    private final int schedulerHandle;
+    // number of challengers from a bulk join teleported into the arena per tick
+    private static final int TELEPORTS_PER_TICK = 4;
+
+    // this round's index in the RoundTicker, or -1 if it is not being ticked
+    int tickerSlot = -1;
+    private final SpawnSelector spawnSelector = new SpawnSelector();
+
+    private volatile PositionSnapshot positions = PositionSnapshot.EMPTY;
+    private boolean positionsStale;
+    // whether the snapshot has ever been read off the main thread, in which case the ticker keeps it current
+    private volatile boolean offThreadReader;
 
     public SteelRound(CommonArena arena, ImmutableSet<LifecycleStage> stages) {
         super(arena, stages);
-        schedulerHandle = Bukkit.getScheduler().scheduleSyncRepeatingTask(
-                ((SteelMinigame) getArena().getMinigame()).getBukkitPlugin(),
-                new SteelRoundWorker(this),
-                0L,
-                20L
-        );
-        try {
-            arena.getRollbackAgent().createRollbackDatabase();
-        } catch (IOException | SQLException ex) {
-            throw new RuntimeException("Failed to create rollback store", ex);
-        }
+        RoundTicker.add(this, new SteelRoundWorker(this));
     }
 
     @Override
@@ -90,22 +92,85 @@ public class SteelRound extends CommonRound {
     public JoinResult addChallenger(UUID uuid) throws IllegalStateException, OrphanedComponentException {
         checkState();
 
+        JoinResult result = join(uuid, null);
+        if (result.getStatus() == JoinResult.Status.SUCCESS) {
+            ChatRoutingTable.invalidate();
+            updateLobbySigns();
+        }
+        return result;
+    }
+
+    /**
+     * Adds the players with the given {@link UUID}s to this {@link Round} in
+     * bulk.
+     *
+     * <p>Each player is validated, has their location and inventory stored,
+     * and is announced through the event bus exactly as with
+     * {@link #addChallenger(UUID)}, but lobby signs and chat routing are only
+     * refreshed once for the whole batch. Teleports into the arena are spread
+     * across ticks ({@value #TELEPORTS_PER_TICK} per tick) to avoid loading
+     * every spawn chunk at once.</p>
+     *
+     * @param uuids The {@link UUID}s of the players to add
+     * @return The result of each join attempt, keyed by player {@link UUID}
+     *     in iteration order
+     * @throws IllegalStateException If this round is orphaned
+     * @throws OrphanedComponentException If this round is orphaned
+     */
+    @SuppressWarnings("DuplicateThrows")
+    public Map<UUID, JoinResult> addChallengers(Collection<UUID> uuids)
+            throws IllegalStateException, OrphanedComponentException {
+        checkState();
+
+        Map<UUID, JoinResult> results = new LinkedHashMap<>();
+        Queue<SteelChallenger> teleports = new ArrayDeque<>();
+        for (UUID uuid : uuids) {
+            if (!results.containsKey(uuid)) {
+                results.put(uuid, join(uuid, teleports));
+            }
+        }
+
+        if (!teleports.isEmpty()) {
+            ChatRoutingTable.invalidate();
+            updateLobbySigns();
+
+            TeleportStager stager = new TeleportStager(teleports);
+            if (stager.step()) { // move the first few right away
+                stager.runTaskTimer(((SteelMinigame) getArena().getMinigame()).getBukkitPlugin(), 1L, 1L);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Performs the per-player portion of a join: validation, location and
+     * inventory storage, and the join event.
+     *
+     * @param uuid The {@link UUID} of the joining player
+     * @param teleports The queue to defer the player's teleport to, or
+     *     {@code null} to teleport them immediately
+     * @return The result of the join attempt
+     */
+    private JoinResult join(UUID uuid, Queue<SteelChallenger> teleports) {
         try {
             Player bukkitPlayer = Bukkit.getPlayer(uuid);
             if (bukkitPlayer == null) {
                 return new CommonJoinResult(JoinResult.Status.PLAYER_OFFLINE);
             }
 
+            if (((SteelArena) getArena()).getRollbackAgent().isRestoring()) {
+                return new CommonJoinResult(new IllegalStateException("Arena " + getArena().getId()
+                        + " is still being reset"));
+            }
+
             if (getChallengers().size() >= getConfigValue(ConfigNode.MAX_PLAYERS)) {
                 return new CommonJoinResult(JoinResult.Status.ROUND_FULL);
             }
 
-            if (CommonCore.getChallenger(uuid).isPresent()) {
+            if (ChallengerIndex.get(uuid).isPresent()) {
                 return new CommonJoinResult(JoinResult.Status.ALREADY_IN_ROUND);
             }
 
-            Location spawn = LocationHelper.convertLocation(nextSpawnPoint());
-
             SteelChallenger challenger = new SteelChallenger(uuid, this);
 
             try {
@@ -114,20 +179,26 @@ public class SteelRound extends CommonRound {
                 return new CommonJoinResult(ex);
             }
 
-            bukkitPlayer.teleport(spawn);
-
-            getChallengerMap().put(uuid, challenger);
-
-            for (LobbySign sign : getArena().getLobbySigns()) {
-                sign.update();
-            }
-
             try {
                 PlayerHelper.pushInventory(bukkitPlayer);
             } catch (IOException ex) {
+                // otherwise the player would be sent to the stored location on their next login
+                PlayerHelper.discardLocation(uuid);
                 return new CommonJoinResult(ex);
             }
 
+            // only register the challenger once nothing else can fail
+            if (teleports == null) {
+                bukkitPlayer.teleport(LocationHelper.convertLocation(nextSpawnPoint()));
+            } else {
+                challenger.setPendingTeleport(true);
+                teleports.add(challenger);
+            }
+
+            getChallengerMap().put(uuid, challenger);
+            ChallengerIndex.add(challenger);
+            invalidatePositionSnapshot();
+
             getArena().getMinigame().getEventBus().post(new CommonChallengerJoinRoundEvent(challenger));
             return new CommonJoinResult(challenger);
         } catch (Throwable ex) {
@@ -135,19 +206,23 @@ public class SteelRound extends CommonRound {
         }
     }
 
+    private void updateLobbySigns() {
+        for (LobbySign sign : getArena().getLobbySigns()) {
+            sign.update();
+        }
+    }
+
     @Override // overridden from CommonRound
     public void removeChallenger(Challenger challenger, boolean isDisconnecting, boolean updateSigns)
             throws OrphanedComponentException {
         super.removeChallenger(challenger, isDisconnecting, updateSigns);
+        ChallengerIndex.remove(challenger);
+        ChatRoutingTable.invalidate();
+        invalidatePositionSnapshot();
 
         Player bukkitPlayer = Bukkit.getPlayer(challenger.getUniqueId());
-        Optional<Location3D> returnPoint = null;
-        try {
-            returnPoint = CommonPlayerHelper.getReturnLocation(bukkitPlayer.getUniqueId());
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
-        if (returnPoint == null) {
+        Optional<Location3D> returnPoint = PlayerHelper.getReturnLocation(bukkitPlayer.getUniqueId());
+        if (!returnPoint.isPresent()) {
             returnPoint = Optional.of(LocationHelper.convertLocation(Bukkit.getWorlds().get(0).getSpawnLocation()));
         }
 
@@ -168,12 +243,8 @@ public class SteelRound extends CommonRound {
             ((CommonChallenger) challenger).orphan();
         }
 
-        if (!event.getReturnLocation().equals(returnPoint)) {
-            try {
-                CommonPlayerHelper.storeLocation(bukkitPlayer.getUniqueId(), event.getReturnLocation());
-            } catch (IOException ex) {
-                ex.printStackTrace();
-            }
+        if (!event.getReturnLocation().equals(returnPoint.get())) {
+            PlayerHelper.storeLocation(bukkitPlayer.getUniqueId(), event.getReturnLocation());
         }
         if (!isDisconnecting) {
             try {
@@ -188,32 +259,70 @@ public class SteelRound extends CommonRound {
     }
 
     @Override
-    public Location3D nextSpawnPoint() {
-        if (getConfigValue(ConfigNode.SPAWNING_MODE) == SpawningMode.PROXIMITY_HIGH) {
-            List<Location3D> candidates = new ArrayList<>();
-            double greatestMean = 0;
+    public <T> void setConfigValue(ConfigNode<T> node, T value) {
+        super.setConfigValue(node, value);
+        ChatRoutingTable.invalidate();
+    }
 
-            if (getChallengers().size() == 0) {
-                // just select a random spawn point
-                return getArena().getSpawnPoints()
-                        .get((int) Math.floor(Math.random() * getArena().getSpawnPoints().size()));
-            }
+    /**
+     * Gets a snapshot of the positions of this round's challengers.
+     *
+     * <p>On the main thread, the snapshot is captured on the first call in
+     * each tick and shared by all later callers within that tick, unless it
+     * has been invalidated since. Off the main thread, the last captured
+     * frame is returned as-is, so the Bukkit API is never touched. Once a
+     * round has been read off the main thread, the {@link RoundTicker}
+     * captures its snapshot at the start of every tick, so that frame is at
+     * most one tick old; the first such read may return an older one.</p>
+     *
+     * @return A snapshot of the positions of this round's challengers
+     */
+    public PositionSnapshot getPositionSnapshot() {
+        PositionSnapshot snapshot = positions;
+        if (!Bukkit.isPrimaryThread()) {
+            offThreadReader = true;
+        } else if (positionsStale || snapshot.getTick() != RoundTicker.currentTick()) {
+            snapshot = capturePositions(RoundTicker.currentTick());
+        }
+        return snapshot;
+    }
 
-            for (Location3D loc : getArena().getSpawnPoints().values()) {
-                Location bukkitLoc = LocationHelper.convertLocation(loc);
-                int sum = 0;
-                for (Challenger ch : getChallengers()) {
-                    sum += Bukkit.getPlayer(ch.getUniqueId()).getLocation().distance(bukkitLoc);
-                }
-                double mean = sum / getChallengers().size();
-                if (mean > greatestMean) {
-                    candidates = Collections.singletonList(loc);
-                    greatestMean = mean;
-                } else if (mean == greatestMean) {
-                    candidates.add(loc);
-                }
-            }
-            return candidates.get((int) Math.floor(Math.random() * candidates.size()));
+    /**
+     * Captures a new snapshot of the positions of this round's challengers.
+     * This must be called from the main thread.
+     *
+     * @param tick The current tick, as counted by the {@link RoundTicker}
+     * @return The new snapshot
+     */
+    PositionSnapshot capturePositions(long tick) {
+        PositionSnapshot snapshot = PositionSnapshot.capture(getChallengers(), tick);
+        positions = snapshot;
+        positionsStale = false;
+        return snapshot;
+    }
+
+    /**
+     * Returns whether {@link #getPositionSnapshot()} has been called off the
+     * main thread since this round was created.
+     *
+     * @return Whether this round's snapshot has had an off-thread reader
+     */
+    boolean hasOffThreadReader() {
+        return offThreadReader;
+    }
+
+    /**
+     * Forces the next main-thread call to {@link #getPositionSnapshot()} to
+     * capture a new snapshot, e.g. after a challenger has been teleported.
+     */
+    void invalidatePositionSnapshot() {
+        positionsStale = true;
+    }
+
+    @Override
+    public Location3D nextSpawnPoint() {
+        if (getConfigValue(ConfigNode.SPAWNING_MODE) == SpawningMode.PROXIMITY_HIGH) {
+            return spawnSelector.select(getArena(), getPositionSnapshot(), SteelCore.getProximitySpawnScorer());
         } else {
             return super.nextSpawnPoint();
         }
@@ -229,7 +338,63 @@ public class SteelRound extends CommonRound {
 
     @Override
     public void cancelTimerTask() {
-        Bukkit.getScheduler().cancelTask(schedulerHandle);
+        RoundTicker.remove(this);
+    }
+
+    /**
+     * Gets the average time spent on each scheduled tick of this round's
+     * worker and boundary checks.
+     *
+     * @return The average tick cost of this round in nanoseconds, or
+     *     {@code 0} if the round is no longer being ticked
+     */
+    public double getAverageTickCost() {
+        return RoundTicker.getAverageCost(this);
+    }
+
+    /**
+     * Teleports challengers queued by a bulk join into the arena a few at a
+     * time, picking each spawn point only once the challenger is moved.
+     */
+    private class TeleportStager extends BukkitRunnable {
+
+        private final Queue<SteelChallenger> queue;
+
+        private TeleportStager(Queue<SteelChallenger> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            if (!step()) {
+                cancel();
+            }
+        }
+
+        /**
+         * Teleports the next few queued challengers.
+         *
+         * @return Whether any challengers remain queued
+         */
+        private boolean step() {
+            for (int i = 0; i < TELEPORTS_PER_TICK && !queue.isEmpty(); ) {
+                SteelChallenger challenger = queue.poll();
+                challenger.setPendingTeleport(false);
+                // skip anyone who left (or whose round ended) before their turn came up
+                if (orphan || getChallengerMap().get(challenger.getUniqueId()) != challenger) {
+                    continue;
+                }
+                Player player = Bukkit.getPlayer(challenger.getUniqueId());
+                if (player == null) {
+                    continue;
+                }
+                player.teleport(LocationHelper.convertLocation(nextSpawnPoint()));
+                invalidatePositionSnapshot(); // so the next spawn accounts for this one
+                i++;
+            }
+            return !queue.isEmpty();
+        }
+
     }
 
     /**
@@ -0,0 +1,255 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.util.agent.chat;
+
+import net.caseif.flint.challenger.Challenger;
+import net.caseif.flint.common.lobby.wizard.IWizardManager;
+import net.caseif.flint.config.ConfigNode;
+import net.caseif.flint.minigame.Minigame;
+import net.caseif.flint.round.Round;
+import net.caseif.flint.steel.SteelCore;
+import net.caseif.flint.steel.SteelMain;
+import net.caseif.flint.steel.lobby.wizard.WizardManager;
+import net.caseif.flint.steel.minigame.SteelMinigame;
+import net.caseif.flint.team.Team;
+
+import com.google.common.base.Optional;
+import org.bukkit.Bukkit;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Precomputed table describing which players may receive chat messages from
+ * which senders, taking into account round, team and spectator chat
+ * separation as well as players using a lobby wizard.
+ *
+ * <p>Any change to round membership, team assignment, spectator status,
+ * wizard membership or chat-related configuration marks the table dirty. It
+ * is then rebuilt on the main thread at most once per tick (or sooner, if
+ * looked up from the main thread first) and published as an immutable
+ * snapshot. Chat threads therefore never read mutable round state, and
+ * routing a message requires only a set lookup per recipient.</p>
+ */
+public final class ChatRoutingTable {
+
+    private static volatile Snapshot snapshot
+            = new Snapshot(new HashMap<UUID, Route>(), new Route(false, new HashSet<UUID>()),
+                    new HashMap<UUID, IWizardManager>());
+    private static final AtomicBoolean DIRTY = new AtomicBoolean();
+
+    private static final Runnable REFRESH = new Runnable() {
+        @Override
+        public void run() {
+            refresh();
+        }
+    };
+
+    private ChatRoutingTable() {
+    }
+
+    /**
+     * Marks the table as no longer reflecting the current state of all rounds
+     * and wizards, scheduling a rebuild for the next tick. Any number of
+     * invalidations before then result in a single rebuild.
+     */
+    public static void invalidate() {
+        if (DIRTY.compareAndSet(false, true) && SteelMain.getInstance().isEnabled()) {
+            Bukkit.getScheduler().runTask(SteelMain.getInstance(), REFRESH);
+        }
+    }
+
+    /**
+     * Gets the {@link Route} for messages sent by the player with the given
+     * UUID. This may safely be called from any thread.
+     *
+     * @param sender The UUID of the sending player
+     * @return The {@link Route} for the player's messages
+     */
+    public static Route getRoute(UUID sender) {
+        Snapshot snap = current();
+        Route route = snap.routes.get(sender);
+        return route != null ? route : snap.outsiderRoute;
+    }
+
+    /**
+     * Gets the wizard manager the player with the given UUID is currently
+     * using, if any. This may safely be called from any thread.
+     *
+     * @param uuid The UUID of the player
+     * @return The wizard manager the player is using, or
+     *     {@link Optional#absent()} if the player is not using a wizard
+     */
+    public static Optional<IWizardManager> getWizardManager(UUID uuid) {
+        return Optional.fromNullable(current().wizards.get(uuid));
+    }
+
+    // off the main thread, the last published snapshot is used until the scheduled rebuild runs
+    private static Snapshot current() {
+        if (DIRTY.get() && Bukkit.isPrimaryThread()) {
+            refresh();
+        }
+        return snapshot;
+    }
+
+    private static void refresh() {
+        if (DIRTY.compareAndSet(true, false)) {
+            snapshot = rebuild();
+        }
+    }
+
+    private static Snapshot rebuild() {
+        Map<UUID, Route> routes = new HashMap<>();
+        // challengers in rounds whose chat is closed off from the rest of the server
+        Set<UUID> isolated = new HashSet<>();
+        Map<UUID, IWizardManager> wizards = new HashMap<>();
+
+        for (Minigame mg : SteelCore.getMinigames().values()) {
+            for (Round round : mg.getRounds()) {
+                if (round.getConfigValue(ConfigNode.SEPARATE_ROUND_CHATS)) {
+                    for (Challenger ch : round.getChallengers()) {
+                        isolated.add(ch.getUniqueId());
+                    }
+                }
+            }
+
+            WizardManager wm = (WizardManager) ((SteelMinigame) mg).getLobbyWizardManager();
+            for (UUID uuid : wm.getPlayers()) {
+                wizards.put(uuid, wm);
+            }
+        }
+
+        for (Minigame mg : SteelCore.getMinigames().values()) {
+            for (Round round : mg.getRounds()) {
+                buildRoutes(round, isolated, routes);
+            }
+        }
+
+        return new Snapshot(routes, new Route(false, isolated), wizards);
+    }
+
+    private static void buildRoutes(Round round, Set<UUID> isolated, Map<UUID, Route> newRoutes) {
+        boolean separateRound = round.getConfigValue(ConfigNode.SEPARATE_ROUND_CHATS);
+        boolean separateTeams = round.getConfigValue(ConfigNode.SEPARATE_TEAM_CHATS);
+        boolean withholdSpectators = round.getConfigValue(ConfigNode.WITHHOLD_SPECTATOR_CHAT);
+
+        // group members by team (if chats are separated by team) and spectator status
+        Map<Optional<Team>, Set<UUID>> members = new HashMap<>();
+        Map<Optional<Team>, Set<UUID>> spectators = new HashMap<>();
+        for (Challenger ch : round.getChallengers()) {
+            Optional<Team> key = separateTeams ? ch.getTeam() : Optional.<Team>absent();
+            getGroup(members, key).add(ch.getUniqueId());
+            if (ch.isSpectating()) {
+                getGroup(spectators, key).add(ch.getUniqueId());
+            }
+        }
+
+        Map<Optional<Team>, Route> memberRoutes = new HashMap<>();
+        Map<Optional<Team>, Route> spectatorRoutes = new HashMap<>();
+        for (Map.Entry<Optional<Team>, Set<UUID>> group : members.entrySet()) {
+            Route route;
+            if (separateRound) {
+                route = new Route(true, group.getValue());
+            } else {
+                // anyone but isolated challengers and, if applicable, other teams in this round
+                Set<UUID> excluded = new HashSet<>(isolated);
+                for (Map.Entry<Optional<Team>, Set<UUID>> other : members.entrySet()) {
+                    if (other != group) {
+                        excluded.addAll(other.getValue());
+                    }
+                }
+                route = new Route(false, excluded);
+            }
+            memberRoutes.put(group.getKey(), route);
+
+            if (withholdSpectators) {
+                Set<UUID> specs = spectators.get(group.getKey());
+                spectatorRoutes.put(group.getKey(),
+                        new Route(true, specs != null ? specs : new HashSet<UUID>()));
+            }
+        }
+
+        for (Challenger ch : round.getChallengers()) {
+            Optional<Team> key = separateTeams ? ch.getTeam() : Optional.<Team>absent();
+            newRoutes.put(ch.getUniqueId(),
+                    ch.isSpectating() && withholdSpectators ? spectatorRoutes.get(key) : memberRoutes.get(key));
+        }
+    }
+
+    private static Set<UUID> getGroup(Map<Optional<Team>, Set<UUID>> groups, Optional<Team> key) {
+        Set<UUID> group = groups.get(key);
+        if (group == null) {
+            group = new HashSet<>();
+            groups.put(key, group);
+        }
+        return group;
+    }
+
+    private static final class Snapshot {
+
+        private final Map<UUID, Route> routes;
+        private final Route outsiderRoute;
+        private final Map<UUID, IWizardManager> wizards;
+
+        private Snapshot(Map<UUID, Route> routes, Route outsiderRoute, Map<UUID, IWizardManager> wizards) {
+            this.routes = routes;
+            this.outsiderRoute = outsiderRoute;
+            this.wizards = wizards;
+        }
+
+    }
+
+    /**
+     * The set of players permitted to receive messages from a given sender.
+     */
+    public static final class Route {
+
+        // whether the set lists the only permitted recipients, as opposed to the forbidden ones
+        private final boolean inclusive;
+        private final Set<UUID> players;
+
+        Route(boolean inclusive, Set<UUID> players) {
+            this.inclusive = inclusive;
+            this.players = players;
+        }
+
+        /**
+         * Returns whether the player with the given UUID may receive messages
+         * along this route.
+         *
+         * @param recipient The UUID of the recipient
+         * @return Whether the recipient may receive the message
+         */
+        public boolean allows(UUID recipient) {
+            return players.contains(recipient) == inclusive;
+        }
+
+    }
+
+}
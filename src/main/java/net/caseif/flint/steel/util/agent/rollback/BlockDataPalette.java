@@ -0,0 +1,285 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.util.agent.rollback;
+
+import net.caseif.flint.common.arena.CommonArena;
+import net.caseif.flint.steel.util.file.SteelDataFiles;
+
+import org.bukkit.Bukkit;
+import org.bukkit.block.data.BlockData;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary mapping each distinct block data string logged in an arena to a
+ * small integer ID, so that rollback records need only store the ID.
+ *
+ * <p>New entries are assigned on the main thread and persisted by the
+ * rollback writer before any record referencing them. When an arena's
+ * records are popped, its palette is {@link #detach() detached} along with
+ * them, so that a new round may start numbering entries again while the old
+ * ones are still being restored. During restore, each ID is resolved to a
+ * {@link BlockData} only once.</p>
+ */
+final class BlockDataPalette {
+
+    // prefix for state serials which reference a palette entry
+    private static final char REFERENCE_PREFIX = '$';
+
+    private final File store;
+    private final String table;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private final List<BlockData> resolved = new ArrayList<>();
+
+    private boolean loaded;
+    private int persisted;
+
+    BlockDataPalette(CommonArena arena) {
+        this.store = SteelDataFiles.ROLLBACK_PALETTE_STORE.getFile(arena.getMinigame());
+        this.table = "\"palette_" + arena.getId().replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Creates a detached palette holding the given entries, which is not
+     * backed by any store and may only be used to resolve references.
+     *
+     * @param values The block data strings of the palette, indexed by ID
+     */
+    BlockDataPalette(List<String> values) {
+        this.store = null;
+        this.table = null;
+        this.values.addAll(values);
+        this.loaded = true;
+        this.persisted = values.size();
+    }
+
+    /**
+     * Returns whether the given state serial is a palette reference.
+     *
+     * @param serial The serial to check
+     * @return Whether the serial is a palette reference
+     */
+    static boolean isReference(String serial) {
+        return !serial.isEmpty() && serial.charAt(0) == REFERENCE_PREFIX;
+    }
+
+    /**
+     * Gets a state serial referencing the given block data string, adding it
+     * to the palette if necessary.
+     *
+     * @param blockData The block data string
+     * @return A state serial referencing the block data string
+     * @throws IOException If the persisted palette cannot be loaded
+     */
+    synchronized String getReference(String blockData) throws IOException {
+        ensureLoaded();
+        Integer id = ids.get(blockData);
+        if (id == null) {
+            id = values.size();
+            ids.put(blockData, id);
+            values.add(blockData);
+        }
+        return REFERENCE_PREFIX + Integer.toString(id);
+    }
+
+    /**
+     * Resolves the given palette reference to a {@link BlockData}.
+     *
+     * @param reference The palette reference to resolve
+     * @return The referenced {@link BlockData}
+     * @throws IOException If the reference is malformed or unknown, or if the
+     *     persisted palette cannot be loaded
+     */
+    synchronized BlockData resolve(String reference) throws IOException {
+        ensureLoaded();
+        int id;
+        try {
+            id = Integer.parseInt(reference.substring(1));
+        } catch (NumberFormatException ex) {
+            throw new IOException("Malformed palette reference \"" + reference + "\"");
+        }
+        if (id < 0 || id >= values.size()) {
+            throw new IOException("Unknown palette ID " + id);
+        }
+
+        while (resolved.size() <= id) {
+            resolved.add(null);
+        }
+        BlockData data = resolved.get(id);
+        if (data == null) {
+            try {
+                data = Bukkit.createBlockData(values.get(id));
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Malformed block data string \"" + values.get(id) + "\"", ex);
+            }
+            resolved.set(id, data);
+        }
+        return data;
+    }
+
+    /**
+     * Writes any entries which have not yet been persisted to disk.
+     *
+     * @throws SQLException If an exception occurs while writing the entries
+     */
+    void persist() throws SQLException {
+        List<String> pending;
+        int firstId;
+        synchronized (this) {
+            if (persisted == values.size()) {
+                return;
+            }
+            firstId = persisted;
+            pending = new ArrayList<>(values.subList(persisted, values.size()));
+        }
+
+        try (Connection conn = openConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                createTable(st);
+            }
+            try (PreparedStatement st = conn.prepareStatement("INSERT OR REPLACE INTO " + table
+                    + " (id, value) VALUES (?, ?)")) {
+                for (int i = 0; i < pending.size(); i++) {
+                    st.setInt(1, firstId + i);
+                    st.setString(2, pending.get(i));
+                    st.addBatch();
+                }
+                st.executeBatch();
+            }
+            conn.commit();
+        }
+
+        synchronized (this) {
+            persisted = Math.max(persisted, firstId + pending.size());
+        }
+    }
+
+    /**
+     * Moves all entries into a new detached palette, leaving this one empty
+     * as if by {@link #clear()}. References assigned before invocation must
+     * be resolved against the returned palette.
+     *
+     * @return A detached palette holding the entries of this one
+     * @throws IOException If the persisted palette cannot be loaded
+     */
+    synchronized BlockDataPalette detach() throws IOException {
+        ensureLoaded();
+        BlockDataPalette detached = new BlockDataPalette(values);
+        detached.resolved.addAll(resolved);
+        clear();
+        return detached;
+    }
+
+    /**
+     * Gets the block data strings of this palette, indexed by ID.
+     *
+     * @return The block data strings of this palette
+     */
+    synchronized List<String> getValues() {
+        return new ArrayList<>(values);
+    }
+
+    /**
+     * Discards all entries held in memory. Entries assigned after invocation
+     * will be numbered from zero again.
+     *
+     * <p>This must be followed by a call to {@link #drop()} on the rollback
+     * writer before any new entries are persisted.</p>
+     */
+    synchronized void clear() {
+        ids.clear();
+        values.clear();
+        resolved.clear();
+        persisted = 0;
+        loaded = true;
+    }
+
+    /**
+     * Removes all persisted entries from disk.
+     *
+     * @throws SQLException If an exception occurs while removing the persisted
+     *     entries
+     */
+    void drop() throws SQLException {
+        if (store.exists()) {
+            try (Connection conn = openConnection(); Statement st = conn.createStatement()) {
+                st.executeUpdate("DROP TABLE IF EXISTS " + table);
+            }
+        }
+    }
+
+    private void ensureLoaded() throws IOException {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        if (!store.exists()) {
+            return;
+        }
+
+        // entries may be left over from a rollback which never completed
+        try (Connection conn = openConnection(); Statement st = conn.createStatement()) {
+            createTable(st);
+            try (ResultSet rs = st.executeQuery("SELECT id, value FROM " + table + " ORDER BY id")) {
+                while (rs.next()) {
+                    int id = rs.getInt("id");
+                    String value = rs.getString("value");
+                    while (values.size() < id) {
+                        values.add(null); // shouldn't happen, but keep IDs aligned with indices
+                    }
+                    values.add(value);
+                    ids.put(value, id);
+                }
+            }
+        } catch (SQLException ex) {
+            throw new IOException("Failed to load block data palette", ex);
+        }
+        persisted = values.size();
+    }
+
+    private void createTable(Statement st) throws SQLException {
+        st.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " (id INTEGER PRIMARY KEY, value TEXT NOT NULL)");
+    }
+
+    private Connection openConnection() throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + store.getAbsolutePath());
+    }
+
+}
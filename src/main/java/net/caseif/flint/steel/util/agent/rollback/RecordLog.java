@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.caseif.flint.steel.util.agent.rollback;
+
+import net.caseif.flint.common.arena.CommonArena;
+import net.caseif.flint.common.util.agent.rollback.RollbackRecord;
+import net.caseif.flint.steel.util.file.SteelDataFiles;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Log of the rollback records of an arena which have yet to be restored.
+ *
+ * <p>Records are appended by the background writer a batch at a time, each
+ * batch being inserted in a single transaction over a single connection.
+ * Only the first change to a block or entity is ever logged, so records are
+ * simply appended and read back in order.</p>
+ */
+final class RecordLog extends RecordTable {
+
+    RecordLog(CommonArena arena) {
+        super(SteelDataFiles.ROLLBACK_RECORD_STORE.getFile(arena.getMinigame()), "records_" + arena.getId());
+    }
+
+    /**
+     * Appends the given records to the log in a single transaction.
+     *
+     * @param kinds The kinds of the records, in the same order as the records
+     * @param records The records to append
+     * @throws SQLException If an exception occurs while writing the records
+     */
+    void append(List<Integer> kinds, List<RollbackRecord> records) throws SQLException {
+        try (Connection conn = openConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                createTable(st);
+            }
+            try (PreparedStatement st = prepareInsert(conn)) {
+                for (int i = 0; i < records.size(); i++) {
+                    addRecord(st, kinds.get(i), records.get(i));
+                }
+                st.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    /**
+     * Reads all records in the log into the given lists.
+     *
+     * @param blocks The list to add block records to
+     * @param entityCreations The list to add entity creation records to
+     * @param entityChanges The list to add entity change records to
+     * @throws SQLException If an exception occurs while reading the records
+     */
+    void read(List<RollbackRecord> blocks, List<RollbackRecord> entityCreations,
+            List<RollbackRecord> entityChanges) throws SQLException {
+        if (!exists()) {
+            return;
+        }
+
+        try (Connection conn = openConnection(); Statement st = conn.createStatement()) {
+            createTable(st);
+            try (ResultSet rs = st.executeQuery("SELECT * FROM " + getTable() + " ORDER BY seq")) {
+                while (rs.next()) {
+                    if (!readRecord(rs, blocks, entityCreations, entityChanges)) {
+                        throw new SQLException("Unknown record kind in record log");
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.caseif.flint.steel.util.agent.rollback;
+
+import net.caseif.flint.common.util.agent.rollback.RollbackRecord;
+import net.caseif.flint.util.physical.Location3D;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Base for the SQLite tables in which Steel keeps rollback records of its own.
+ *
+ * <p>Each row holds a single record along with its kind, and rows are read
+ * back in the order in which they were inserted.</p>
+ */
+abstract class RecordTable {
+
+    static final int KIND_BLOCK = 0;
+    static final int KIND_ENTITY_CREATION = 1;
+    static final int KIND_ENTITY_CHANGE = 2;
+
+    private final File store;
+    private final String table;
+
+    RecordTable(File store, String table) {
+        this.store = store;
+        this.table = "\"" + table.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Removes the table along with all records in it.
+     *
+     * @throws SQLException If an exception occurs while removing the table
+     */
+    void clear() throws SQLException {
+        if (store.exists()) {
+            try (Connection conn = openConnection(); Statement st = conn.createStatement()) {
+                st.executeUpdate("DROP TABLE IF EXISTS " + table);
+            }
+        }
+    }
+
+    boolean exists() {
+        return store.exists();
+    }
+
+    String getTable() {
+        return table;
+    }
+
+    Connection openConnection() throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + store.getAbsolutePath());
+    }
+
+    void createTable(Statement st) throws SQLException {
+        st.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " (seq INTEGER PRIMARY KEY, kind INTEGER NOT NULL,"
+                + " id INTEGER, uuid TEXT, world TEXT, x REAL, y REAL, z REAL, type TEXT, data INTEGER, state TEXT,"
+                + " blob BLOB)");
+    }
+
+    PreparedStatement prepareInsert(Connection conn) throws SQLException {
+        return conn.prepareStatement("INSERT INTO " + table
+                + " (kind, id, uuid, world, x, y, z, type, data, state, blob)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+    }
+
+    /**
+     * Adds the given record to the batch of the given insert statement.
+     *
+     * @param st The statement returned by {@link #prepareInsert}
+     * @param kind The kind of the record
+     * @param record The record to add
+     * @throws SQLException If an exception occurs while binding the record
+     */
+    void addRecord(PreparedStatement st, int kind, RollbackRecord record) throws SQLException {
+        Location3D loc = record.getLocation();
+        st.setInt(1, kind);
+        st.setInt(2, record.getId());
+        if (record.getUuid() != null) {
+            st.setString(3, record.getUuid().toString());
+        } else {
+            st.setNull(3, Types.VARCHAR);
+        }
+        if (loc != null) {
+            st.setString(4, loc.getWorld().orNull());
+            st.setDouble(5, loc.getX());
+            st.setDouble(6, loc.getY());
+            st.setDouble(7, loc.getZ());
+        } else {
+            st.setNull(4, Types.VARCHAR);
+            st.setDouble(5, 0);
+            st.setDouble(6, 0);
+            st.setDouble(7, 0);
+        }
+        st.setString(8, record.getTypeData());
+        st.setInt(9, record.getData());
+        st.setString(10, record.getStateSerial());
+        st.setNull(11, Types.BLOB);
+        st.addBatch();
+    }
+
+    /**
+     * Reads the record in the current row of the given result set into the
+     * list for its kind.
+     *
+     * @param rs The result set to read from
+     * @param blocks The list to add block records to
+     * @param entityCreations The list to add entity creation records to
+     * @param entityChanges The list to add entity change records to
+     * @return Whether the row held a record, as opposed to a row of a kind
+     *     unknown to this class
+     * @throws SQLException If an exception occurs while reading the row
+     */
+    boolean readRecord(ResultSet rs, List<RollbackRecord> blocks, List<RollbackRecord> entityCreations,
+            List<RollbackRecord> entityChanges) throws SQLException {
+        int id = rs.getInt("id");
+        String uuid = rs.getString("uuid");
+        String world = rs.getString("world");
+        Location3D loc = world != null
+                ? new Location3D(world, rs.getDouble("x"), rs.getDouble("y"), rs.getDouble("z"))
+                : null;
+        switch (rs.getInt("kind")) {
+            case KIND_BLOCK:
+                blocks.add(RollbackRecord.createBlockRecord(id, loc, rs.getString("type"), rs.getInt("data"),
+                        rs.getString("state")));
+                return true;
+            case KIND_ENTITY_CREATION:
+                entityCreations.add(RollbackRecord.createEntityCreationRecord(id, UUID.fromString(uuid), world));
+                return true;
+            case KIND_ENTITY_CHANGE:
+                entityChanges.add(RollbackRecord.createEntityChangeRecord(id, UUID.fromString(uuid), loc,
+                        rs.getString("type"), rs.getString("state")));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.util.agent.rollback;
+
+import net.caseif.flint.common.arena.CommonArena;
+import net.caseif.flint.common.util.agent.rollback.RollbackRecord;
+import net.caseif.flint.steel.util.file.SteelDataFiles;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Durable copy of the records of an arena restore which is in progress.
+ *
+ * <p>The record log is emptied as soon as its records have been read, but
+ * the restorer applies them over several ticks. The records are kept here
+ * until the restore completes so that a restore interrupted by a crash can be
+ * resumed when the arena is next loaded. The block data palette entries and
+ * stored states referenced by the records are kept alongside them, since the
+ * arena's live palette and state store are reset as soon as they are
+ * popped.</p>
+ */
+final class RestoreJournal extends RecordTable {
+
+    private static final int KIND_PALETTE_ENTRY = 3;
+    private static final int KIND_STATE = 4;
+
+    RestoreJournal(CommonArena arena) {
+        super(SteelDataFiles.ROLLBACK_JOURNAL_STORE.getFile(arena.getMinigame()), "restore_" + arena.getId());
+    }
+
+    /**
+     * Replaces the contents of the journal with the given records in a single
+     * transaction.
+     *
+     * @param blocks The block records of the restore
+     * @param entityCreations The entity creation records of the restore
+     * @param entityChanges The entity change records of the restore
+     * @param palette The block data palette referenced by the records,
+     *     indexed by ID
+     * @param states The stored states referenced by the records, keyed by ID
+     * @throws SQLException If an exception occurs while writing the records
+     */
+    void write(List<RollbackRecord> blocks, List<RollbackRecord> entityCreations,
+            List<RollbackRecord> entityChanges, List<String> palette, Map<Integer, byte[]> states)
+            throws SQLException {
+        try (Connection conn = openConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate("DROP TABLE IF EXISTS " + getTable());
+                createTable(st);
+            }
+            try (PreparedStatement st = prepareInsert(conn)) {
+                addRecords(st, KIND_BLOCK, blocks);
+                addRecords(st, KIND_ENTITY_CREATION, entityCreations);
+                addRecords(st, KIND_ENTITY_CHANGE, entityChanges);
+                addPalette(st, palette);
+                addStates(st, states);
+                st.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    /**
+     * Reads the records of an interrupted restore into the given lists.
+     *
+     * @param blocks The list to add block records to
+     * @param entityCreations The list to add entity creation records to
+     * @param entityChanges The list to add entity change records to
+     * @param palette The list to add block data palette entries to, indexed
+     *     by ID
+     * @param states The map to add stored states to, keyed by ID
+     * @throws SQLException If an exception occurs while reading the records
+     */
+    void read(List<RollbackRecord> blocks, List<RollbackRecord> entityCreations,
+            List<RollbackRecord> entityChanges, List<String> palette, Map<Integer, byte[]> states)
+            throws SQLException {
+        if (!exists()) {
+            return;
+        }
+
+        try (Connection conn = openConnection(); Statement st = conn.createStatement()) {
+            createTable(st);
+            try (ResultSet rs = st.executeQuery("SELECT * FROM " + getTable() + " ORDER BY seq")) {
+                while (rs.next()) {
+                    if (readRecord(rs, blocks, entityCreations, entityChanges)) {
+                        continue;
+                    }
+                    int id = rs.getInt("id");
+                    switch (rs.getInt("kind")) {
+                        case KIND_PALETTE_ENTRY:
+                            while (palette.size() <= id) {
+                                palette.add(null);
+                            }
+                            palette.set(id, rs.getString("state"));
+                            break;
+                        case KIND_STATE:
+                            states.put(id, rs.getBytes("blob"));
+                            break;
+                        default:
+                            throw new SQLException("Unknown record kind in restore journal");
+                    }
+                }
+            }
+        }
+    }
+
+    private void addRecords(PreparedStatement st, int kind, List<RollbackRecord> records) throws SQLException {
+        for (RollbackRecord record : records) {
+            addRecord(st, kind, record);
+        }
+    }
+
+    private void addPalette(PreparedStatement st, List<String> palette) throws SQLException {
+        for (int i = 0; i < palette.size(); i++) {
+            st.setInt(1, KIND_PALETTE_ENTRY);
+            st.setInt(2, i);
+            st.setNull(3, Types.VARCHAR);
+            st.setNull(4, Types.VARCHAR);
+            st.setDouble(5, 0);
+            st.setDouble(6, 0);
+            st.setDouble(7, 0);
+            st.setNull(8, Types.VARCHAR);
+            st.setInt(9, 0);
+            st.setString(10, palette.get(i));
+            st.setNull(11, Types.BLOB);
+            st.addBatch();
+        }
+    }
+
+    private void addStates(PreparedStatement st, Map<Integer, byte[]> states) throws SQLException {
+        for (Map.Entry<Integer, byte[]> entry : states.entrySet()) {
+            st.setInt(1, KIND_STATE);
+            st.setInt(2, entry.getKey());
+            st.setNull(3, Types.VARCHAR);
+            st.setNull(4, Types.VARCHAR);
+            st.setDouble(5, 0);
+            st.setDouble(6, 0);
+            st.setDouble(7, 0);
+            st.setNull(8, Types.VARCHAR);
+            st.setInt(9, 0);
+            st.setNull(10, Types.VARCHAR);
+            st.setBytes(11, entry.getValue());
+            st.addBatch();
+        }
+    }
+
+}
@@ -31,11 +31,13 @@ import net.caseif.flint.common.util.agent.rollback.CommonRollbackAgent;
 import net.caseif.flint.common.util.agent.rollback.RollbackRecord;
 import net.caseif.flint.steel.SteelCore;
 import net.caseif.flint.steel.SteelMain;
+import net.caseif.flint.steel.arena.ArenaIndex;
 import net.caseif.flint.steel.arena.SteelArena;
 import net.caseif.flint.steel.util.agent.rollback.serialization.BlockStateSerializer;
 import net.caseif.flint.steel.util.agent.rollback.serialization.EntityStateSerializer;
 import net.caseif.flint.steel.util.helper.LocationHelper;
 
+import com.google.common.base.Optional;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -50,8 +52,13 @@ import org.bukkit.inventory.InventoryHolder;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -61,6 +68,29 @@ import java.util.UUID;
  */
 public final class RollbackAgent extends CommonRollbackAgent {
 
+    private static final RollbackWriter WRITER = new RollbackWriter();
+
+    // packed positions of blocks whose original state has already been logged
+    private final Set<Long> loggedBlocks = new HashSet<>();
+    // UUIDs of entities whose original state has already been logged
+    private final Set<UUID> loggedEntities = new HashSet<>();
+
+    private final RecordLog log;
+    private final BlockDataPalette palette;
+    private final StateBlobStore states;
+    private final RestoreJournal journal;
+
+    // records collected while reading the common rollback store, null otherwise
+    private List<RollbackRecord> pendingBlocks;
+    private List<RollbackRecord> pendingEntityCreations;
+    private List<RollbackRecord> pendingEntityChanges;
+    private RollbackRestorer restorer;
+
+    // whether the record log may hold records - unknown, so assumed, until the first rollback after loading
+    private boolean storeMayHaveRecords = true;
+    // whether the common rollback store, which older versions logged to, has been drained since loading
+    private boolean commonStoreDrained;
+
     /**
      * Creates a new {@link RollbackAgent} backing the given
      * {@link SteelArena}.
@@ -70,6 +100,18 @@ public final class RollbackAgent extends CommonRollbackAgent {
      */
     public RollbackAgent(CommonArena arena) {
         super(arena);
+        this.log = new RecordLog(arena);
+        this.palette = new BlockDataPalette(arena);
+        this.states = new StateBlobStore(arena);
+        this.journal = new RestoreJournal(arena);
+
+        // pick up any restore which was interrupted before the server last stopped
+        Bukkit.getScheduler().runTask(SteelMain.getInstance(), new Runnable() {
+            @Override
+            public void run() {
+                resumeRestore();
+            }
+        });
     }
 
     @Override
@@ -77,9 +119,42 @@ public final class RollbackAgent extends CommonRollbackAgent {
         Bukkit.getScheduler().runTask(SteelMain.getInstance(), runnable);
     }
 
+    /**
+     * Completes any incremental restores in progress, then writes out all
+     * pending records and stops the background rollback writer.
+     */
+    public static void shutdownWriter() {
+        RollbackRestorer.finishAll();
+        WRITER.shutdown();
+    }
+
+    /**
+     * Returns whether this agent is currently restoring its arena.
+     *
+     * @return Whether this agent is currently restoring its arena
+     */
+    public boolean isRestoring() {
+        return restorer != null;
+    }
+
+    /**
+     * Returns the progress of the current restore.
+     *
+     * @return The fraction of blocks which have been restored, from {@code 0}
+     *     to {@code 1}, or {@code 1} if no restore is in progress
+     */
+    public float getRestoreProgress() {
+        return restorer != null ? restorer.getProgress() : 1f;
+    }
+
     /**
      * Logs a rollback change at the given location.
      *
+     * <p>The state of the block is captured immediately, but the resulting
+     * record is written to the record log asynchronously. Only the
+     * first change to a given block is logged, since subsequent changes do
+     * not affect the state it will be restored to.</p>
+     *
      * @param block The block which was changed
      * @throws IOException If an exception occurs while reading to or from the
      *     rollback database
@@ -88,9 +163,23 @@ public final class RollbackAgent extends CommonRollbackAgent {
      */
     @SuppressWarnings("deprecation")
     public void logBlockChange(Block block) throws IOException, SQLException {
-        String state = BlockStateSerializer.serializeState(block).orNull();
-        logChange(RollbackRecord.createBlockRecord(-1, LocationHelper.convertLocation(block.getLocation()),
-                block.getState().getType().name(), block.getState().getRawData(), state));
+        if (!loggedBlocks.add(packPosition(block.getX(), block.getY(), block.getZ()))) {
+            return; // original state is already on record
+        }
+
+        // block entities are snapshotted by getState, so only take one snapshot
+        BlockState state = block.getState();
+        String serial;
+        if (!SteelCore.isLegacy() && !BlockStateSerializer.hasBlockEntity(state)) {
+            serial = palette.getReference(state.getBlockData().getAsString());
+        } else {
+            Optional<byte[]> encoded = BlockStateSerializer.serializeState(state);
+            serial = encoded.isPresent() ? states.add(encoded.get()) : null;
+        }
+        storeMayHaveRecords = true;
+        WRITER.submit(this, RecordTable.KIND_BLOCK, RollbackRecord.createBlockRecord(-1,
+                LocationHelper.convertLocation(block.getLocation()), state.getType().name(), state.getRawData(),
+                serial));
     }
 
     private void logEntityCreation(Entity entity) throws IOException, SQLException {
@@ -102,17 +191,48 @@ public final class RollbackAgent extends CommonRollbackAgent {
     }
 
     private void logEntitySomething(Entity entity, boolean newlyCreated) throws IOException, SQLException {
-        String state = !newlyCreated ? EntityStateSerializer.serializeState(entity) : null;
+        if (!loggedEntities.add(entity.getUniqueId())) {
+            return; // original state (or creation) is already on record
+        }
+
+        String state = !newlyCreated ? states.add(EntityStateSerializer.serializeState(entity)) : null;
+        storeMayHaveRecords = true;
         if (newlyCreated) {
-            logChange(RollbackRecord.createEntityCreationRecord(-1, entity.getUniqueId(), entity.getWorld().getName()));
+            WRITER.submit(this, RecordTable.KIND_ENTITY_CREATION,
+                    RollbackRecord.createEntityCreationRecord(-1, entity.getUniqueId(), entity.getWorld().getName()));
         } else {
-            logChange(RollbackRecord.createEntityChangeRecord(-1, entity.getUniqueId(),
+            WRITER.submit(this, RecordTable.KIND_ENTITY_CHANGE, RollbackRecord.createEntityChangeRecord(-1,
+                    entity.getUniqueId(),
                     LocationHelper.convertLocation(entity.getLocation()), entity.getType().name(), state));
         }
     }
 
+    /**
+     * Appends the given batch of records to the record log in a single
+     * transaction. This is invoked from the background writer thread.
+     *
+     * @param kinds The kinds of the records, in the same order as the records
+     * @param records The records to write
+     * @throws SQLException If an exception occurs while writing the records
+     */
+    void writeRecords(List<Integer> kinds, List<RollbackRecord> records) throws SQLException {
+        log.append(kinds, records);
+    }
+
+    /**
+     * Writes any new block data palette entries and stored states to disk.
+     * This is invoked from the background writer thread.
+     *
+     * @throws SQLException If an exception occurs while writing the palette or
+     *     the states
+     */
+    void persistStates() throws SQLException {
+        palette.persist();
+        states.persist();
+    }
+
     public static void checkBlockChange(Block block, Event event) {
-        List<Arena> arenas = checkChangeAtLocation(LocationHelper.convertLocation(block.getLocation()));
+        List<Arena> arenas = getLoggingArenasAt(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
         for (Arena arena : arenas) {
             try {
                 ((SteelArena) arena).getRollbackAgent().logBlockChange(block);
@@ -124,7 +244,8 @@ public final class RollbackAgent extends CommonRollbackAgent {
     }
 
     public static void checkEntityChange(Entity entity, boolean newlyCreated, Event event) {
-        List<Arena> arenas = checkChangeAtLocation(LocationHelper.convertLocation(entity.getLocation()));
+        Location loc = entity.getLocation();
+        List<Arena> arenas = getLoggingArenasAt(loc.getWorld().getName(), loc.getX(), loc.getY(), loc.getZ());
         for (Arena arena : arenas) {
             try {
                 if (newlyCreated) {
@@ -139,11 +260,224 @@ public final class RollbackAgent extends CommonRollbackAgent {
         }
     }
 
-    @SuppressWarnings("deprecation")
+    private static List<Arena> getLoggingArenasAt(String world, double x, double y, double z) {
+        List<Arena> arenas = ArenaIndex.getArenasAt(world, x, y, z);
+        if (arenas.isEmpty()) {
+            return arenas;
+        }
+        // only arenas with a round in progress have a record log to log to
+        Iterator<Arena> it = arenas.iterator();
+        while (it.hasNext()) {
+            if (!it.next().getRound().isPresent()) {
+                it.remove();
+            }
+        }
+        return arenas;
+    }
+
     @Override
-    public void rollbackBlock(RollbackRecord record)
-            throws IOException {
-        Block b = LocationHelper.convertLocation(record.getLocation()).getBlock();
+    public void popRollbacks() throws IOException, SQLException {
+        if (restorer != null) {
+            restorer.finish(); // shouldn't happen, but don't interleave restores
+        }
+
+        // make sure every change logged so far has actually hit the database
+        WRITER.flush();
+
+        if (!storeMayHaveRecords) {
+            // nothing was logged, so there's nothing to restore (and no reason to create the store)
+            loggedBlocks.clear();
+            loggedEntities.clear();
+            palette.clear();
+            states.clear();
+            return;
+        }
+
+        List<RollbackRecord> blocks = new ArrayList<>();
+        List<RollbackRecord> entityCreations = new ArrayList<>();
+        List<RollbackRecord> entityChanges = new ArrayList<>();
+        pendingBlocks = blocks;
+        pendingEntityCreations = entityCreations;
+        pendingEntityChanges = entityChanges;
+        try {
+            // records may be left over from before a restart even if none were logged since
+            log.read(blocks, entityCreations, entityChanges);
+            if (!commonStoreDrained) {
+                // read after the log so that the older records, being the original states, are applied last
+                createRollbackDatabase();
+                super.popRollbacks();
+                commonStoreDrained = true;
+            }
+            storeMayHaveRecords = false;
+        } finally {
+            pendingBlocks = null;
+            pendingEntityCreations = null;
+            pendingEntityChanges = null;
+            loggedBlocks.clear();
+            loggedEntities.clear();
+
+            // a new round may log changes while these records are restored, so it gets a fresh palette and store
+            BlockDataPalette restorePalette = detachPalette();
+            StateBlobStore restoreStates = detachStates();
+            startRestore(blocks, entityCreations, entityChanges, restorePalette, restoreStates, true);
+            dropPersistedRecords(); // queued behind the journal, which keeps a copy
+        }
+    }
+
+    private void resumeRestore() {
+        if (restorer != null) {
+            return;
+        }
+
+        List<RollbackRecord> blocks = new ArrayList<>();
+        List<RollbackRecord> entityCreations = new ArrayList<>();
+        List<RollbackRecord> entityChanges = new ArrayList<>();
+        List<String> paletteValues = new ArrayList<>();
+        Map<Integer, byte[]> stateBlobs = new HashMap<>();
+        try {
+            journal.read(blocks, entityCreations, entityChanges, paletteValues, stateBlobs);
+        } catch (SQLException ex) {
+            SteelCore.logSevere("Failed to read interrupted restore for arena " + getArena().getId());
+            ex.printStackTrace();
+            return;
+        }
+        if (!blocks.isEmpty() || !entityCreations.isEmpty() || !entityChanges.isEmpty()) {
+            SteelCore.logInfo("Resuming interrupted restore of arena " + getArena().getId());
+            startRestore(blocks, entityCreations, entityChanges, new BlockDataPalette(paletteValues),
+                    new StateBlobStore(stateBlobs), false);
+        }
+    }
+
+    private void startRestore(final List<RollbackRecord> blocks, final List<RollbackRecord> entityCreations,
+            final List<RollbackRecord> entityChanges, BlockDataPalette restorePalette, StateBlobStore restoreStates,
+            boolean writeJournal) {
+        if (blocks.isEmpty() && entityCreations.isEmpty() && entityChanges.isEmpty()) {
+            return;
+        }
+
+        if (writeJournal) {
+            // the record log is about to be emptied, so keep the records until the restore completes
+            final List<String> paletteValues = restorePalette.getValues();
+            final Map<Integer, byte[]> stateBlobs = restoreStates.getStates();
+            WRITER.submitTask(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        journal.write(blocks, entityCreations, entityChanges, paletteValues, stateBlobs);
+                    } catch (SQLException ex) {
+                        SteelCore.logSevere("Failed to journal restore for arena " + getArena().getId());
+                        ex.printStackTrace();
+                    }
+                }
+            });
+        }
+
+        int budget = SteelCore.getRollbackTickBudget();
+        restorer = new RollbackRestorer(this, blocks, entityCreations, entityChanges, restorePalette, restoreStates,
+                budget);
+        if (budget > 0) {
+            restorer.start();
+        } else {
+            restorer.finish();
+        }
+    }
+
+    void onRestoreComplete(RollbackRestorer restorer) {
+        if (this.restorer == restorer) {
+            this.restorer = null;
+        }
+        SteelCore.logVerbose("Finished restoring arena " + getArena().getId());
+        WRITER.submitTask(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    journal.clear();
+                } catch (SQLException ex) {
+                    SteelCore.logSevere("Failed to clear restore journal for arena " + getArena().getId());
+                    ex.printStackTrace();
+                }
+            }
+        });
+    }
+
+    /**
+     * Moves the entries of this agent's palette into a detached palette for
+     * the records which were just popped, leaving the live palette empty.
+     *
+     * @return The detached palette
+     */
+    private BlockDataPalette detachPalette() {
+        try {
+            return palette.detach();
+        } catch (IOException ex) {
+            SteelCore.logSevere("Failed to load block data palette for arena " + getArena().getId());
+            ex.printStackTrace();
+            palette.clear();
+            return new BlockDataPalette(new ArrayList<String>());
+        }
+    }
+
+    /**
+     * Moves the states stored by this agent into a detached store for the
+     * records which were just popped, leaving the live store empty.
+     *
+     * @return The detached store
+     */
+    private StateBlobStore detachStates() {
+        try {
+            return states.detach();
+        } catch (IOException ex) {
+            SteelCore.logSevere("Failed to load stored states for arena " + getArena().getId());
+            ex.printStackTrace();
+            states.clear();
+            return new StateBlobStore(new HashMap<Integer, byte[]>());
+        }
+    }
+
+    private void dropPersistedRecords() {
+        WRITER.submitTask(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    log.clear();
+                    palette.drop();
+                    states.drop();
+                } catch (SQLException ex) {
+                    SteelCore.logSevere("Failed to clear record log, block data palette or stored states for arena "
+                            + getArena().getId());
+                    ex.printStackTrace();
+                }
+            }
+        });
+    }
+
+    private static long packPosition(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    @Override
+    public void rollbackBlock(RollbackRecord record) throws IOException {
+        if (pendingBlocks != null) {
+            pendingBlocks.add(record); // applied later by the restorer
+        } else {
+            applyBlockRollback(record, LocationHelper.getBlock(record.getLocation()), palette, states);
+        }
+    }
+
+    /**
+     * Restores the given block to the state described by the given record.
+     *
+     * @param record The record to apply
+     * @param b The block at the record's location
+     * @param restorePalette The palette to resolve the record's state serial
+     *     against
+     * @param restoreStates The state store to resolve the record's state
+     *     serial against
+     * @throws IOException If the record's state serial cannot be applied
+     */
+    @SuppressWarnings("deprecation")
+    void applyBlockRollback(RollbackRecord record, Block b, BlockDataPalette restorePalette,
+            StateBlobStore restoreStates) throws IOException {
         Material m;
         try {
             m = Material.valueOf(record.getTypeData());
@@ -152,9 +486,10 @@ public final class RollbackAgent extends CommonRollbackAgent {
                     + getArena().getId() + " cannot be matched to a Material");
             return;
         }
-        if (b.getState() instanceof InventoryHolder) {
+        BlockState state = b.getState();
+        if (state instanceof InventoryHolder) {
             // Bukkit drops the items if they aren't cleared
-            ((InventoryHolder) b.getState()).getInventory().clear();
+            ((InventoryHolder) state).getInventory().clear();
         }
         b.setType(m);
 
@@ -163,10 +498,18 @@ public final class RollbackAgent extends CommonRollbackAgent {
         }
 
         if (record.getStateSerial() != null) {
-            try {
-                BlockStateSerializer.deserializeState(b, record.getStateSerial());
-            } catch (InvalidConfigurationException ex) {
-                throw new IOException(ex);
+            if (BlockDataPalette.isReference(record.getStateSerial())) {
+                b.setBlockData(restorePalette.resolve(record.getStateSerial()));
+            } else {
+                try {
+                    if (StateBlobStore.isReference(record.getStateSerial())) {
+                        BlockStateSerializer.deserializeState(b, restoreStates.get(record.getStateSerial()));
+                    } else { // written by an older version
+                        BlockStateSerializer.deserializeState(b, record.getStateSerial());
+                    }
+                } catch (InvalidConfigurationException ex) {
+                    throw new IOException(ex);
+                }
             }
         }
     }
@@ -175,13 +518,61 @@ public final class RollbackAgent extends CommonRollbackAgent {
 
     @Override
     public void rollbackEntityCreation(RollbackRecord record) {
+        if (pendingEntityCreations != null) {
+            pendingEntityCreations.add(record); // applied by the restorer once the blocks are back
+        } else {
+            applyEntityCreationRollback(record);
+        }
+    }
+
+    @Override
+    public void rollbackEntityChange(RollbackRecord record) throws IOException {
+        if (pendingEntityChanges != null) {
+            pendingEntityChanges.add(record); // applied by the restorer once the blocks are back
+        } else {
+            applyEntityChangeRollback(record, states);
+        }
+    }
+
+    /**
+     * Applies the given entity records. This is invoked by the restorer after
+     * every block has been restored, so that hanging entities and the like
+     * have something to attach to.
+     *
+     * @param entityCreations The entity creation records to apply
+     * @param entityChanges The entity change records to apply
+     * @param restoreStates The state store to resolve the records' state
+     *     serials against
+     */
+    void applyEntityRollbacks(List<RollbackRecord> entityCreations, List<RollbackRecord> entityChanges,
+            StateBlobStore restoreStates) {
+        if (entityCreations.isEmpty() && entityChanges.isEmpty()) {
+            return;
+        }
+
+        cacheEntities(); // entities may have come and gone since the store was read
+        for (RollbackRecord record : entityCreations) {
+            applyEntityCreationRollback(record);
+        }
+        for (RollbackRecord record : entityChanges) {
+            try {
+                applyEntityChangeRollback(record, restoreStates);
+            } catch (IOException | RuntimeException ex) {
+                SteelCore.logSevere("Failed to roll back entity record with ID " + record.getId() + " in arena "
+                        + getArena().getId());
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private void applyEntityCreationRollback(RollbackRecord record) {
         if (entities.containsKey(record.getUuid())) {
             entities.get(record.getUuid()).remove();
         } // else: probably already removed by a player or something else
     }
 
-    @Override
-    public void rollbackEntityChange(final RollbackRecord record) throws IOException {
+    private void applyEntityChangeRollback(final RollbackRecord record, StateBlobStore restoreStates)
+            throws IOException {
         final EntityType entityType;
         try {
             entityType = EntityType.valueOf(record.getTypeData());
@@ -191,6 +582,10 @@ public final class RollbackAgent extends CommonRollbackAgent {
             return;
         }
 
+        final String serial = record.getStateSerial();
+        // written by an older version if not a reference
+        final byte[] state = serial != null && StateBlobStore.isReference(serial) ? restoreStates.get(serial) : null;
+
         if (entities.containsKey(record.getUuid())) {
             Entity e = entities.get(record.getUuid());
             // teleport to bottom of map so it doesn't conflict since it isn't removed
@@ -199,20 +594,27 @@ public final class RollbackAgent extends CommonRollbackAgent {
             e.remove(); // clean slate
         }
 
-        Bukkit.getScheduler().runTask(SteelMain.getInstance(), new Runnable() {
+        Runnable respawn = new Runnable() {
             @Override
             public void run() {
                 Location loc = LocationHelper.convertLocation(record.getLocation());
                 Entity e = loc.getWorld().spawnEntity(loc, entityType);
-                if (record.getStateSerial() != null) {
-                    try {
-                        EntityStateSerializer.deserializeState(e, record.getStateSerial());
-                    } catch (InvalidConfigurationException ex) {
-                        throw new RuntimeException(ex);
+                try {
+                    if (state != null) {
+                        EntityStateSerializer.deserializeState(e, state);
+                    } else if (serial != null) {
+                        EntityStateSerializer.deserializeState(e, serial);
                     }
+                } catch (InvalidConfigurationException ex) {
+                    throw new RuntimeException(ex);
                 }
             }
-        });
+        };
+        if (SteelMain.getInstance().isEnabled()) {
+            Bukkit.getScheduler().runTask(SteelMain.getInstance(), respawn);
+        } else {
+            respawn.run(); // restores are finished off while disabling, when tasks can no longer be scheduled
+        }
     }
 
     @Override
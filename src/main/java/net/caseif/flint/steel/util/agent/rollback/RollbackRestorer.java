@@ -0,0 +1,272 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.util.agent.rollback;
+
+import net.caseif.flint.common.util.agent.rollback.RollbackRecord;
+import net.caseif.flint.steel.SteelCore;
+import net.caseif.flint.steel.SteelMain;
+import net.caseif.flint.steel.util.helper.LocationHelper;
+import net.caseif.flint.util.physical.Location3D;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies buffered block rollback records over several ticks, spending no
+ * more than a fixed amount of time on each.
+ *
+ * <p>Records are applied grouped by chunk and then by 16-block section, so
+ * that each chunk is looked up once and its changes are applied
+ * together. Entity records are applied only after the last block, so that
+ * entities which hang from or stand on blocks have them to attach to.</p>
+ */
+final class RollbackRestorer implements Runnable {
+
+    private static final Set<RollbackRestorer> ACTIVE = new LinkedHashSet<>();
+
+    private static final Comparator<Entry> CHUNK_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            int c = a.world.compareTo(b.world);
+            if (c != 0) {
+                return c;
+            }
+            c = Integer.compare(a.x >> 4, b.x >> 4);
+            if (c != 0) {
+                return c;
+            }
+            c = Integer.compare(a.z >> 4, b.z >> 4);
+            if (c != 0) {
+                return c;
+            }
+            c = Integer.compare(a.y >> 4, b.y >> 4);
+            if (c != 0) {
+                return c;
+            }
+            return Integer.compare(a.index, b.index); // keep the original order within a section
+        }
+    };
+
+    private final RollbackAgent agent;
+    private final Entry[] entries;
+    private final List<RollbackRecord> entityCreations;
+    private final List<RollbackRecord> entityChanges;
+    private final BlockDataPalette palette;
+    private final StateBlobStore states;
+    private final long budgetNanos;
+
+    private int index;
+    private int taskHandle = -1;
+
+    // the chunk currently being restored
+    private String worldName;
+    private World world;
+    private Chunk chunk;
+
+    // metrics
+    private int chunksTouched;
+    private long chunkStartNanos;
+    private long chunkNanos;
+    private long maxChunkNanos;
+    private long totalNanos;
+
+    RollbackRestorer(RollbackAgent agent, List<RollbackRecord> records, List<RollbackRecord> entityCreations,
+            List<RollbackRecord> entityChanges, BlockDataPalette palette, StateBlobStore states, int budgetMillis) {
+        this.agent = agent;
+        this.entityCreations = entityCreations;
+        this.entityChanges = entityChanges;
+        this.palette = palette;
+        this.states = states;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+
+        List<Entry> entries = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            RollbackRecord record = records.get(i);
+            Location3D loc = record.getLocation();
+            if (!loc.getWorld().isPresent()) {
+                SteelCore.logWarning("Rollback record with ID " + record.getId() + " in arena "
+                        + agent.getArena().getId() + " has no world");
+                continue;
+            }
+            entries.add(new Entry(record, loc.getWorld().get(), i));
+        }
+        this.entries = entries.toArray(new Entry[entries.size()]);
+        Arrays.sort(this.entries, CHUNK_ORDER);
+    }
+
+    /**
+     * Schedules this restorer to begin applying records on the next tick.
+     */
+    void start() {
+        ACTIVE.add(this);
+        taskHandle = Bukkit.getScheduler().scheduleSyncRepeatingTask(SteelMain.getInstance(), this, 1L, 1L);
+        SteelCore.logVerbose("Restoring " + entries.length + " blocks in arena " + agent.getArena().getId()
+                + " incrementally");
+    }
+
+    /**
+     * Returns the fraction of records which have been applied so far.
+     *
+     * @return The fraction of records which have been applied, from
+     *     {@code 0} to {@code 1}
+     */
+    float getProgress() {
+        return entries.length == 0 ? 1f : (float) index / entries.length;
+    }
+
+    @Override
+    public void run() {
+        long startTime = System.nanoTime();
+        long deadline = startTime + budgetNanos;
+        // always make some progress, even if the budget is tiny
+        do {
+            if (index >= entries.length) {
+                break;
+            }
+            apply(entries[index++]);
+        } while (System.nanoTime() < deadline);
+        endSlice(startTime);
+
+        if (index >= entries.length) {
+            complete();
+        }
+    }
+
+    /**
+     * Immediately applies all remaining records.
+     */
+    void finish() {
+        long startTime = System.nanoTime();
+        while (index < entries.length) {
+            apply(entries[index++]);
+        }
+        endSlice(startTime);
+        complete();
+    }
+
+    private void apply(Entry entry) {
+        int chunkX = entry.x >> 4;
+        int chunkZ = entry.z >> 4;
+        if (chunk == null || !entry.world.equals(worldName) || chunk.getX() != chunkX || chunk.getZ() != chunkZ) {
+            long now = System.nanoTime();
+            endChunk(now);
+            if (!entry.world.equals(worldName)) {
+                worldName = entry.world;
+                world = LocationHelper.getWorld(entry.world);
+            }
+            chunk = world.getChunkAt(chunkX, chunkZ);
+            chunksTouched++;
+            chunkStartNanos = now;
+        }
+
+        try {
+            agent.applyBlockRollback(entry.record, chunk.getBlock(entry.x & 0xF, entry.y, entry.z & 0xF),
+                    palette, states);
+        } catch (IOException | RuntimeException ex) {
+            SteelCore.logSevere("Failed to roll back block record with ID " + entry.record.getId() + " in arena "
+                    + agent.getArena().getId());
+            ex.printStackTrace();
+        }
+    }
+
+    // accounts for time spent in the current chunk up to the given time
+    private void endChunk(long now) {
+        if (chunk != null) {
+            chunkNanos += now - chunkStartNanos;
+            maxChunkNanos = Math.max(maxChunkNanos, chunkNanos);
+            chunkNanos = 0;
+        }
+    }
+
+    private void endSlice(long startTime) {
+        long now = System.nanoTime();
+        if (chunk != null) {
+            // the chunk may carry over into the next slice
+            chunkNanos += now - chunkStartNanos;
+            chunkStartNanos = now;
+        }
+        totalNanos += now - startTime;
+    }
+
+    private void complete() {
+        if (taskHandle != -1) {
+            Bukkit.getScheduler().cancelTask(taskHandle);
+            taskHandle = -1;
+        }
+        ACTIVE.remove(this);
+
+        maxChunkNanos = Math.max(maxChunkNanos, chunkNanos);
+        chunk = null;
+        world = null;
+        SteelCore.logVerbose("Restored " + entries.length + " blocks across " + chunksTouched + " chunks in arena "
+                + agent.getArena().getId() + " (" + TimeUnit.NANOSECONDS.toMillis(totalNanos) + "ms total, "
+                + (chunksTouched > 0 ? TimeUnit.NANOSECONDS.toMicros(totalNanos / chunksTouched) : 0)
+                + "us avg / " + TimeUnit.NANOSECONDS.toMicros(maxChunkNanos) + "us max per chunk)");
+
+        agent.applyEntityRollbacks(entityCreations, entityChanges, states);
+        agent.onRestoreComplete(this);
+    }
+
+    /**
+     * Immediately applies all remaining records for every restore in
+     * progress.
+     */
+    static void finishAll() {
+        for (RollbackRestorer restorer : new ArrayList<>(ACTIVE)) {
+            restorer.finish();
+        }
+    }
+
+    private static final class Entry {
+
+        private final RollbackRecord record;
+        private final String world;
+        private final int x;
+        private final int y;
+        private final int z;
+        private final int index;
+
+        private Entry(RollbackRecord record, String world, int index) {
+            this.record = record;
+            this.world = world;
+            this.x = (int) Math.floor(record.getLocation().getX());
+            this.y = (int) Math.floor(record.getLocation().getY());
+            this.z = (int) Math.floor(record.getLocation().getZ());
+            this.index = index;
+        }
+
+    }
+
+}
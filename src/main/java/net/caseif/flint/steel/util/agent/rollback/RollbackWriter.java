@@ -0,0 +1,298 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.util.agent.rollback;
+
+import net.caseif.flint.common.util.agent.rollback.RollbackRecord;
+import net.caseif.flint.steel.SteelCore;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background writer which persists rollback records off the main thread.
+ *
+ * <p>Records are snapshotted on the main thread and handed to this writer,
+ * which drains them on a dedicated thread. Pending records are flushed once
+ * {@link #MAX_PENDING} have accumulated or once {@link #FLUSH_INTERVAL_MS}
+ * milliseconds have passed since the first of them was queued, whichever comes
+ * first.</p>
+ *
+ * <p>Each flush writes the records of an arena to its {@link RecordLog} in a
+ * single transaction, so a full batch costs one connection and one commit
+ * rather than one of each per record.</p>
+ */
+public final class RollbackWriter implements Runnable {
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int MAX_PENDING = 256;
+    private static final long FLUSH_INTERVAL_MS = 250;
+
+    private static final long SHUTDOWN_TIMEOUT_MS = 10000;
+
+    private static final Object STOP = new Object();
+
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private Thread thread;
+
+    /**
+     * Queues the given {@link RollbackRecord} to be written to the record log
+     * of the given {@link RollbackAgent}.
+     *
+     * <p>If the queue is full, this method blocks until the writer has caught
+     * up so that records are never reordered or dropped. The writer's monitor
+     * is not held while waiting, so other producers are not held up behind
+     * the caller.</p>
+     *
+     * @param agent The {@link RollbackAgent} which owns the record
+     * @param kind The kind of the record
+     * @param record The {@link RollbackRecord} to write
+     * @throws SQLException If the record must be written synchronously and an
+     *     exception occurs while doing so
+     */
+    void submit(RollbackAgent agent, int kind, RollbackRecord record) throws SQLException {
+        synchronized (this) {
+            ensureRunning();
+        }
+        QueuedRecord queued = new QueuedRecord(agent, kind, record);
+        if (queue.offer(queued)) {
+            return;
+        }
+        try {
+            queue.put(queued);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            // we can't wait for space in the queue, so drain what's there and write the record ourselves
+            flush();
+            agent.persistStates();
+            agent.writeRecords(Collections.singletonList(kind), Collections.singletonList(record));
+        }
+    }
+
+    /**
+     * Queues the given task to be run on the writer thread once all records
+     * queued prior to invocation have been written.
+     *
+     * @param task The task to run
+     */
+    synchronized void submitTask(Runnable task) {
+        ensureRunning();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(task);
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Blocks until all records queued prior to invocation have been written.
+     */
+    void flush() {
+        CountDownLatch barrier;
+        synchronized (this) {
+            if (thread == null || !thread.isAlive()) {
+                return;
+            }
+            barrier = new CountDownLatch(1);
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    queue.put(barrier);
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                barrier.await();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes out all pending records and stops the writer thread.
+     */
+    synchronized void shutdown() {
+        if (thread == null || !thread.isAlive()) {
+            return;
+        }
+        try {
+            queue.put(STOP);
+            thread.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            SteelCore.logSevere("Rollback writer did not finish within " + SHUTDOWN_TIMEOUT_MS
+                    + "ms - some rollback records may not have been saved");
+        }
+        thread = null;
+    }
+
+    private void ensureRunning() {
+        if (thread == null || !thread.isAlive()) {
+            thread = new Thread(this, "Steel Rollback Writer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    @Override
+    public void run() {
+        List<QueuedRecord> pending = new ArrayList<>(MAX_PENDING);
+        long deadline = 0;
+        while (true) {
+            Object next;
+            try {
+                if (pending.isEmpty()) {
+                    next = queue.take();
+                } else {
+                    next = queue.poll(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException ex) {
+                flush(pending);
+                return;
+            }
+
+            if (next == null) { // flush interval elapsed
+                flush(pending);
+            } else if (next instanceof QueuedRecord) {
+                if (pending.isEmpty()) {
+                    deadline = System.currentTimeMillis() + FLUSH_INTERVAL_MS;
+                }
+                pending.add((QueuedRecord) next);
+                if (pending.size() >= MAX_PENDING) {
+                    flush(pending);
+                }
+            } else if (next instanceof CountDownLatch) {
+                flush(pending);
+                ((CountDownLatch) next).countDown();
+            } else if (next instanceof Runnable) {
+                flush(pending);
+                try {
+                    ((Runnable) next).run();
+                } catch (RuntimeException ex) {
+                    SteelCore.logSevere("Rollback writer task failed");
+                    ex.printStackTrace();
+                }
+            } else if (next == STOP) {
+                flush(pending);
+                return;
+            }
+        }
+    }
+
+    private void flush(List<QueuedRecord> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long startTime = System.nanoTime();
+
+        // group the records by arena, keeping their order within each
+        Map<RollbackAgent, List<QueuedRecord>> batches = new IdentityHashMap<>();
+        List<RollbackAgent> agents = new ArrayList<>();
+        for (QueuedRecord queued : pending) {
+            List<QueuedRecord> batch = batches.get(queued.agent);
+            if (batch == null) {
+                batch = new ArrayList<>();
+                batches.put(queued.agent, batch);
+                agents.add(queued.agent);
+            }
+            batch.add(queued);
+        }
+
+        for (RollbackAgent agent : agents) {
+            // palette entries and stored states must hit the disk before the records which reference them
+            try {
+                agent.persistStates();
+            } catch (SQLException ex) {
+                SteelCore.logSevere("Failed to write block data palette or stored states for arena "
+                        + agent.getArena().getId());
+                ex.printStackTrace();
+            }
+
+            List<QueuedRecord> batch = batches.get(agent);
+            List<Integer> kinds = new ArrayList<>(batch.size());
+            List<RollbackRecord> records = new ArrayList<>(batch.size());
+            for (QueuedRecord queued : batch) {
+                kinds.add(queued.kind);
+                records.add(queued.record);
+            }
+            try {
+                agent.writeRecords(kinds, records);
+            } catch (SQLException | RuntimeException ex) {
+                SteelCore.logSevere("Failed to write " + records.size() + " rollback records for arena "
+                        + agent.getArena().getId());
+                ex.printStackTrace();
+            }
+        }
+        SteelCore.logVerbose("Wrote " + pending.size() + " rollback records in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
+        pending.clear();
+    }
+
+    private static class QueuedRecord {
+
+        private final RollbackAgent agent;
+        private final int kind;
+        private final RollbackRecord record;
+
+        private QueuedRecord(RollbackAgent agent, int kind, RollbackRecord record) {
+            this.agent = agent;
+            this.kind = kind;
+            this.record = record;
+        }
+
+    }
+
+}
@@ -0,0 +1,272 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.caseif.flint.steel.util.agent.rollback;
+
+import net.caseif.flint.common.arena.CommonArena;
+import net.caseif.flint.steel.util.file.SteelDataFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Store of the binary states of the block entities and entities logged in an
+ * arena, so that rollback records need only store a reference to them.
+ *
+ * <p>States are held as raw bytes in a BLOB column of a Steel-owned table,
+ * rather than in the text serial column of the {@link RecordLog}. New
+ * states are assigned on the main thread and persisted by the rollback
+ * writer before any record referencing them, after which they are only kept
+ * on disk. When an arena's records are popped, its states are
+ * {@link #detach() detached} along with them, as with the
+ * {@link BlockDataPalette}.</p>
+ */
+final class StateBlobStore {
+
+    // prefix for state serials which reference a stored state
+    private static final char REFERENCE_PREFIX = '#';
+
+    private final File store;
+    private final String table;
+
+    // states which have not yet been persisted, or every state of a detached store
+    private final Map<Integer, byte[]> states = new HashMap<>();
+    // the ID to assign to the next state, or -1 if not yet known
+    private int nextId = -1;
+
+    StateBlobStore(CommonArena arena) {
+        this.store = SteelDataFiles.ROLLBACK_STATE_STORE.getFile(arena.getMinigame());
+        this.table = "\"states_" + arena.getId().replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Creates a detached store holding the given states, which is not backed
+     * by any table and may only be used to resolve references.
+     *
+     * @param states The states of the store, keyed by ID
+     */
+    StateBlobStore(Map<Integer, byte[]> states) {
+        this.store = null;
+        this.table = null;
+        this.states.putAll(states);
+    }
+
+    /**
+     * Returns whether the given state serial is a stored state reference.
+     *
+     * @param serial The serial to check
+     * @return Whether the serial is a stored state reference
+     */
+    static boolean isReference(String serial) {
+        return !serial.isEmpty() && serial.charAt(0) == REFERENCE_PREFIX;
+    }
+
+    /**
+     * Adds the given binary state to the store.
+     *
+     * @param state The binary state to add
+     * @return A state serial referencing the added state
+     * @throws IOException If the next free ID cannot be read from disk
+     */
+    synchronized String add(byte[] state) throws IOException {
+        if (nextId == -1) {
+            nextId = readNextId();
+        }
+        int id = nextId++;
+        states.put(id, state);
+        return REFERENCE_PREFIX + Integer.toString(id);
+    }
+
+    /**
+     * Gets the binary state referenced by the given serial.
+     *
+     * @param reference The reference to resolve
+     * @return The referenced binary state
+     * @throws IOException If the reference is malformed or unknown, or if the
+     *     state cannot be read from disk
+     */
+    synchronized byte[] get(String reference) throws IOException {
+        int id;
+        try {
+            id = Integer.parseInt(reference.substring(1));
+        } catch (NumberFormatException ex) {
+            throw new IOException("Malformed state reference \"" + reference + "\"");
+        }
+
+        byte[] state = states.get(id);
+        if (state == null && store != null && store.exists()) {
+            try (Connection conn = openConnection(); Statement st = conn.createStatement()) {
+                createTable(st);
+                try (ResultSet rs = st.executeQuery("SELECT data FROM " + table + " WHERE id = " + id)) {
+                    if (rs.next()) {
+                        state = rs.getBytes("data");
+                    }
+                }
+            } catch (SQLException ex) {
+                throw new IOException("Failed to read stored state " + id, ex);
+            }
+        }
+        if (state == null) {
+            throw new IOException("Unknown state ID " + id);
+        }
+        return state;
+    }
+
+    /**
+     * Writes any states which have not yet been persisted to disk in a
+     * single transaction, then releases them from memory.
+     *
+     * @throws SQLException If an exception occurs while writing the states
+     */
+    void persist() throws SQLException {
+        Map<Integer, byte[]> pending;
+        synchronized (this) {
+            if (states.isEmpty()) {
+                return;
+            }
+            pending = new HashMap<>(states);
+        }
+
+        try (Connection conn = openConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                createTable(st);
+            }
+            try (PreparedStatement st = conn.prepareStatement("INSERT OR REPLACE INTO " + table
+                    + " (id, data) VALUES (?, ?)")) {
+                for (Map.Entry<Integer, byte[]> entry : pending.entrySet()) {
+                    st.setInt(1, entry.getKey());
+                    st.setBytes(2, entry.getValue());
+                    st.addBatch();
+                }
+                st.executeBatch();
+            }
+            conn.commit();
+        }
+
+        synchronized (this) {
+            for (Map.Entry<Integer, byte[]> entry : pending.entrySet()) {
+                if (states.get(entry.getKey()) == entry.getValue()) {
+                    states.remove(entry.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves all states, including those already persisted, into a new
+     * detached store, leaving this one empty as if by {@link #clear()}.
+     * References assigned before invocation must be resolved against the
+     * returned store.
+     *
+     * @return A detached store holding the states of this one
+     * @throws IOException If the persisted states cannot be read
+     */
+    synchronized StateBlobStore detach() throws IOException {
+        Map<Integer, byte[]> all = new HashMap<>();
+        if (store.exists()) {
+            try (Connection conn = openConnection(); Statement st = conn.createStatement()) {
+                createTable(st);
+                try (ResultSet rs = st.executeQuery("SELECT id, data FROM " + table)) {
+                    while (rs.next()) {
+                        all.put(rs.getInt("id"), rs.getBytes("data"));
+                    }
+                }
+            } catch (SQLException ex) {
+                throw new IOException("Failed to load stored states", ex);
+            }
+        }
+        all.putAll(states);
+        clear();
+        return new StateBlobStore(all);
+    }
+
+    /**
+     * Gets the states held in memory by this store, keyed by ID. For a
+     * detached store, this is every state.
+     *
+     * @return The states held in memory
+     */
+    synchronized Map<Integer, byte[]> getStates() {
+        return new HashMap<>(states);
+    }
+
+    /**
+     * Discards all states held in memory. States added after invocation will
+     * be numbered from zero again.
+     *
+     * <p>This must be followed by a call to {@link #drop()} on the rollback
+     * writer before any new states are persisted.</p>
+     */
+    synchronized void clear() {
+        states.clear();
+        nextId = 0;
+    }
+
+    /**
+     * Removes all persisted states from disk.
+     *
+     * @throws SQLException If an exception occurs while removing the persisted
+     *     states
+     */
+    void drop() throws SQLException {
+        if (store.exists()) {
+            try (Connection conn = openConnection(); Statement st = conn.createStatement()) {
+                st.executeUpdate("DROP TABLE IF EXISTS " + table);
+            }
+        }
+    }
+
+    private int readNextId() throws IOException {
+        if (!store.exists()) {
+            return 0;
+        }
+
+        // states may be left over from a rollback which never completed
+        try (Connection conn = openConnection(); Statement st = conn.createStatement()) {
+            createTable(st);
+            try (ResultSet rs = st.executeQuery("SELECT MAX(id) FROM " + table)) {
+                return rs.next() && rs.getObject(1) != null ? rs.getInt(1) + 1 : 0;
+            }
+        } catch (SQLException ex) {
+            throw new IOException("Failed to load stored states", ex);
+        }
+    }
+
+    private void createTable(Statement st) throws SQLException {
+        st.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " (id INTEGER PRIMARY KEY, data BLOB NOT NULL)");
+    }
+
+    private Connection openConnection() throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + store.getAbsolutePath());
+    }
+
+}
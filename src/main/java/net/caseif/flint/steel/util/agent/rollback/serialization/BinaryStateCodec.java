@@ -0,0 +1,409 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.util.agent.rollback.serialization;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Static utility class for encoding state data in a compact binary format.
+ *
+ * <p>Encoded states consist of a version byte followed by a tree of tagged
+ * values, in which strings and containers are length-prefixed. They are
+ * built field by field with a {@link Writer}, without an intermediate
+ * {@link ConfigurationSection}, and are stored as raw bytes rather than in
+ * the text serial column used by the YAML serials of older versions of
+ * Steel.</p>
+ */
+public final class BinaryStateCodec {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_BOOLEAN = 2;
+    private static final byte TAG_BYTE = 3;
+    private static final byte TAG_SHORT = 4;
+    private static final byte TAG_INT = 5;
+    private static final byte TAG_LONG = 6;
+    private static final byte TAG_FLOAT = 7;
+    private static final byte TAG_DOUBLE = 8;
+    private static final byte TAG_LIST = 9;
+    private static final byte TAG_MAP = 10;
+    private static final byte TAG_SECTION = 11;
+    private static final byte TAG_SERIALIZABLE = 12;
+    private static final byte TAG_BYTES = 13;
+
+    private BinaryStateCodec() {
+    }
+
+    /**
+     * Decodes the given binary state to a {@link YamlConfiguration}.
+     *
+     * @param bytes The binary state to decode
+     * @return The decoded {@link YamlConfiguration}
+     * @throws IOException If the state is malformed or uses an unsupported
+     *     format version
+     */
+    public static YamlConfiguration decode(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        byte version = in.readByte();
+        if (version > FORMAT_VERSION) {
+            throw new IOException("Unsupported state serial version " + version);
+        }
+
+        YamlConfiguration yaml = new YamlConfiguration();
+        readSection(in, yaml);
+        return yaml;
+    }
+
+    /**
+     * Loads the given YAML state serial, as written by older versions of
+     * Steel.
+     *
+     * @param serial The serial to load
+     * @return The loaded state data
+     * @throws InvalidConfigurationException If the serial is malformed
+     */
+    public static YamlConfiguration loadYaml(String serial) throws InvalidConfigurationException {
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.loadFromString(serial);
+        return yaml;
+    }
+
+    /**
+     * Writes a single tagged value to the given {@link DataOutput}.
+     *
+     * @param out The {@link DataOutput} to write to
+     * @param value The value to write
+     * @throws IOException If an exception occurs while writing
+     * @throws IllegalArgumentException If the value cannot be encoded
+     */
+    public static void writeValue(DataOutput out, Object value) throws IOException, IllegalArgumentException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof byte[]) {
+            out.writeByte(TAG_BYTES);
+            writeVarInt(out, ((byte[]) value).length);
+            out.write((byte[]) value);
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Enum) {
+            out.writeByte(TAG_STRING);
+            writeString(out, ((Enum<?>) value).name());
+        } else if (value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(TAG_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            out.writeByte(TAG_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INT);
+            writeVarInt(out, (Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TAG_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof List) {
+            out.writeByte(TAG_LIST);
+            List<?> list = (List<?>) value;
+            writeVarInt(out, list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof ConfigurationSection) {
+            out.writeByte(TAG_SECTION);
+            writeSection(out, (ConfigurationSection) value);
+        } else if (value instanceof ConfigurationSerializable) {
+            out.writeByte(TAG_SERIALIZABLE);
+            ConfigurationSerializable serializable = (ConfigurationSerializable) value;
+            writeString(out, ConfigurationSerialization.getAlias(serializable.getClass()));
+            writeMap(out, serializable.serialize());
+        } else if (value instanceof Map) {
+            out.writeByte(TAG_MAP);
+            writeMap(out, (Map<?, ?>) value);
+        } else {
+            throw new IllegalArgumentException("Cannot encode value of type " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * Reads a single tagged value from the given {@link DataInput}.
+     *
+     * @param in The {@link DataInput} to read from
+     * @return The value which was read
+     * @throws IOException If an exception occurs while reading or if the data
+     *     is malformed
+     */
+    public static Object readValue(DataInput in) throws IOException {
+        return readValue(in, in.readByte());
+    }
+
+    private static Object readValue(DataInput in, byte tag) throws IOException {
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return readString(in);
+            case TAG_BOOLEAN:
+                return in.readBoolean();
+            case TAG_BYTE:
+                return in.readByte();
+            case TAG_SHORT:
+                return in.readShort();
+            case TAG_INT:
+                return readVarInt(in);
+            case TAG_LONG:
+                return in.readLong();
+            case TAG_FLOAT:
+                return in.readFloat();
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_LIST: {
+                int size = readLength(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case TAG_BYTES: {
+                byte[] bytes = new byte[readLength(in)];
+                in.readFully(bytes);
+                return bytes;
+            }
+            case TAG_MAP:
+            case TAG_SECTION: // sections nested in lists or maps are read back as plain maps
+                return readMap(in);
+            case TAG_SERIALIZABLE: {
+                String alias = readString(in);
+                Map<String, Object> map = new LinkedHashMap<>();
+                map.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, alias);
+                map.putAll(readMap(in));
+                try {
+                    return ConfigurationSerialization.deserializeObject(map);
+                } catch (IllegalArgumentException ex) {
+                    throw new IOException("Failed to deserialize object with alias " + alias, ex);
+                }
+            }
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private static void writeSection(DataOutput out, ConfigurationSection section) throws IOException {
+        Set<String> keys = section.getKeys(false);
+        writeVarInt(out, keys.size());
+        for (String key : keys) {
+            writeString(out, key);
+            writeValue(out, section.get(key));
+        }
+    }
+
+    private static void readSection(DataInput in, ConfigurationSection section) throws IOException {
+        int size = readLength(in);
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            byte tag = in.readByte();
+            if (tag == TAG_SECTION) {
+                readSection(in, section.createSection(key));
+            } else {
+                section.set(key, readValue(in, tag));
+            }
+        }
+    }
+
+    private static void writeMap(DataOutput out, Map<?, ?> map) throws IOException {
+        writeVarInt(out, map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeString(out, entry.getKey().toString());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    private static Map<String, Object> readMap(DataInput in) throws IOException {
+        int size = readLength(in);
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            map.put(key, readValue(in));
+        }
+        return map;
+    }
+
+    private static void writeString(DataOutput out, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[readLength(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readLength(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0) {
+            throw new IOException("Malformed length prefix " + length);
+        }
+        return length;
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        // zigzag encoding keeps small negative values small
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            out.writeByte((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte(zigzag);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int zigzag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new IOException("Malformed variable-length integer");
+            }
+            b = in.readByte();
+            zigzag |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    /**
+     * Builds a binary state one field at a time.
+     */
+    public static final class Writer {
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(body);
+        private int fields;
+
+        /**
+         * Adds a field to the state. Dotted keys are expanded into nested
+         * sections when the state is decoded.
+         *
+         * @param key The key of the field
+         * @param value The value of the field
+         * @return This {@link Writer}
+         * @throws IllegalArgumentException If the value cannot be encoded
+         */
+        public Writer put(String key, Object value) throws IllegalArgumentException {
+            try {
+                writeString(out, key);
+                writeValue(out, value);
+            } catch (IOException ex) {
+                throw new RuntimeException("Failed to write to in-memory buffer", ex);
+            }
+            fields++;
+            return this;
+        }
+
+        /**
+         * Adds a nested section to the state, holding the fields of the given
+         * {@link Writer}.
+         *
+         * @param key The key of the section
+         * @param section The fields of the section
+         * @return This {@link Writer}
+         */
+        public Writer putSection(String key, Writer section) {
+            try {
+                writeString(out, key);
+                out.writeByte(TAG_SECTION);
+                section.writeFields(out);
+            } catch (IOException ex) {
+                throw new RuntimeException("Failed to write to in-memory buffer", ex);
+            }
+            fields++;
+            return this;
+        }
+
+        /**
+         * Returns whether no fields have been added to the state.
+         *
+         * @return Whether the state is empty
+         */
+        public boolean isEmpty() {
+            return fields == 0;
+        }
+
+        /**
+         * Gets the encoded state.
+         *
+         * @return The encoded state
+         */
+        public byte[] toByteArray() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.size() + 6);
+            DataOutputStream result = new DataOutputStream(bytes);
+            try {
+                result.writeByte(FORMAT_VERSION);
+                writeFields(result);
+            } catch (IOException ex) {
+                throw new RuntimeException("Failed to write to in-memory buffer", ex);
+            }
+            return bytes.toByteArray();
+        }
+
+        private void writeFields(DataOutput target) throws IOException {
+            writeVarInt(target, fields);
+            target.write(body.toByteArray());
+        }
+
+    }
+
+}
@@ -49,9 +49,15 @@ import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.EntityType;
 import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
 import org.bukkit.material.FlowerPot;
 import org.bukkit.material.MaterialData;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -98,73 +104,110 @@ public class BlockStateSerializer {
 
     private static final String BLOCK_DATA_KEY = "block-data";
 
-    public static Optional<String> serializeState(Block block) {
-        YamlConfiguration yaml = new YamlConfiguration();
+    /**
+     * Serializes the given {@link BlockState} to the binary state format,
+     * writing each field straight from the state.
+     *
+     * <p>On legacy platforms, blocks without a block entity have no state
+     * worth storing and are skipped without building a state.</p>
+     *
+     * @param state The {@link BlockState} to serialize
+     * @return The binary state, if the block has any state worth storing
+     */
+    public static Optional<byte[]> serializeState(BlockState state) {
+        if (SteelCore.isLegacy() && !hasBlockEntity(state)) {
+            return Optional.absent();
+        }
 
-        // http://minecraft.gamepedia.com/Block_entity was used as a reference for this method
+        BinaryStateCodec.Writer writer = new BinaryStateCodec.Writer();
 
-        BlockState state = block.getState();
+        // http://minecraft.gamepedia.com/Block_entity was used as a reference for this method
 
         if (state instanceof InventoryHolder) {
-            yaml.set(INVENTORY_KEY, InventoryHelper.serializeInventory(((InventoryHolder) state).getInventory()));
+            writer.put(INVENTORY_KEY, encodeInventory(((InventoryHolder) state).getInventory().getContents()));
         }
 
         if (state instanceof Sign) {
-            yaml.set(SIGN_LINES_KEY, Arrays.asList(((Sign) state).getLines()));
+            writer.put(SIGN_LINES_KEY, Arrays.asList(((Sign) state).getLines()));
         } else if (state instanceof Banner) {
             if (SteelCore.isLegacy()) {
-                yaml.set(BANNER_BASE_COLOR_KEY, ((Banner) state).getBaseColor().name());
+                writer.put(BANNER_BASE_COLOR_KEY, ((Banner) state).getBaseColor().name());
             }
 
-            ConfigurationSection patternSection = yaml.createSection(BANNER_PATTERNS_KEY);
+            BinaryStateCodec.Writer patternSection = new BinaryStateCodec.Writer();
             List<Pattern> patterns = ((Banner) state).getPatterns();
             for (int i = 0; i < patterns.size(); i++) {
-                ConfigurationSection subSection = patternSection.createSection("" + i);
-                subSection.set(BANNER_PATTERN_COLOR_KEY, patterns.get(i).getColor().name());
-                subSection.set(BANNER_PATTERN_TYPE_KEY, patterns.get(i).getPattern().name());
+                patternSection.putSection("" + i, new BinaryStateCodec.Writer()
+                        .put(BANNER_PATTERN_COLOR_KEY, patterns.get(i).getColor().name())
+                        .put(BANNER_PATTERN_TYPE_KEY, patterns.get(i).getPattern().name()));
             }
+            writer.putSection(BANNER_PATTERNS_KEY, patternSection);
         } else if (state instanceof CreatureSpawner) {
-            yaml.set(SPAWNER_TYPE_KEY, ((CreatureSpawner) state).getSpawnedType().name());
-            yaml.set(SPAWNER_DELAY_KEY, ((CreatureSpawner) state).getDelay());
+            writer.put(SPAWNER_TYPE_KEY, ((CreatureSpawner) state).getSpawnedType().name());
+            writer.put(SPAWNER_DELAY_KEY, ((CreatureSpawner) state).getDelay());
         } else if (state instanceof NoteBlock) {
             if (SteelCore.isLegacy()) {
-                yaml.set(NOTE_OCTAVE_KEY, ((NoteBlock) state).getNote().getOctave());
-                yaml.set(NOTE_TONE_KEY, ((NoteBlock) state).getNote().getTone().name());
-                yaml.set(NOTE_SHARPED_KEY, ((NoteBlock) state).getNote().isSharped());
+                writer.put(NOTE_OCTAVE_KEY, ((NoteBlock) state).getNote().getOctave());
+                writer.put(NOTE_TONE_KEY, ((NoteBlock) state).getNote().getTone().name());
+                writer.put(NOTE_SHARPED_KEY, ((NoteBlock) state).getNote().isSharped());
             }
         } else if (state instanceof Jukebox) {
             if (((Jukebox) state).isPlaying()) {
-                yaml.set(JUKEBOX_DISC_KEY, ((Jukebox) state).getPlaying());
+                writer.put(JUKEBOX_DISC_KEY, ((Jukebox) state).getPlaying());
             }
         } else if (state instanceof Skull) {
-            yaml.set(SKULL_OWNER_KEY, ((Skull) state).getOwner());
+            writer.put(SKULL_OWNER_KEY, ((Skull) state).getOwner());
             if (SteelCore.isLegacy()) {
-                yaml.set(SKULL_ROTATION_KEY, ((Skull) state).getRotation().name());
+                writer.put(SKULL_ROTATION_KEY, ((Skull) state).getRotation().name());
             }
         } else if (state instanceof CommandBlock) {
-            yaml.set(COMMAND_NAME_KEY, ((CommandBlock) state).getName());
-            yaml.set(COMMAND_CMD_KEY, ((CommandBlock) state).getCommand());
+            writer.put(COMMAND_NAME_KEY, ((CommandBlock) state).getName());
+            writer.put(COMMAND_CMD_KEY, ((CommandBlock) state).getCommand());
         } else if (state instanceof FlowerPot) {
             if (SteelCore.isLegacy()) {
-                yaml.set(FLOWER_TYPE_KEY, ((FlowerPot) state).getContents().getItemType().name());
-                yaml.set(FLOWER_DATA_KEY, ((FlowerPot) state).getContents().getData());
+                writer.put(FLOWER_TYPE_KEY, ((FlowerPot) state).getContents().getItemType().name());
+                writer.put(FLOWER_DATA_KEY, ((FlowerPot) state).getContents().getData());
             }
         }
 
         if (!SteelCore.isLegacy()) {
-            yaml.set(BLOCK_DATA_KEY, block.getBlockData().getAsString());
+            writer.put(BLOCK_DATA_KEY, state.getBlockData().getAsString());
         }
 
-        if (yaml.getKeys(false).size() > 0) {
-            return Optional.of(yaml.saveToString());
+        if (!writer.isEmpty()) {
+            return Optional.of(writer.toByteArray());
         }
         return Optional.absent();
     }
 
+    /**
+     * Applies the given binary state to the given block.
+     *
+     * @param block The block to apply the state to
+     * @param state The binary state to apply
+     * @throws InvalidConfigurationException If the state is malformed
+     */
+    public static void deserializeState(Block block, byte[] state) throws InvalidConfigurationException {
+        try {
+            applyState(block, BinaryStateCodec.decode(state));
+        } catch (IOException ex) {
+            throw new InvalidConfigurationException(ex);
+        }
+    }
+
+    /**
+     * Applies the given YAML state serial, as written by older versions of
+     * Steel, to the given block.
+     *
+     * @param block The block to apply the state to
+     * @param serial The YAML state serial to apply
+     * @throws InvalidConfigurationException If the serial is malformed
+     */
     public static void deserializeState(Block block, String serial) throws InvalidConfigurationException {
-        YamlConfiguration yaml = new YamlConfiguration();
-        yaml.loadFromString(serial);
+        applyState(block, BinaryStateCodec.loadYaml(serial));
+    }
 
+    private static void applyState(Block block, YamlConfiguration yaml) throws InvalidConfigurationException {
         boolean hasBlockData = false;
 
         if (!SteelCore.isLegacy()) {
@@ -180,7 +223,14 @@ public class BlockStateSerializer {
         boolean malformedData = false;
 
         if (state instanceof InventoryHolder) {
-            if (yaml.isConfigurationSection(INVENTORY_KEY)) {
+            if (yaml.get(INVENTORY_KEY) instanceof byte[]) {
+                try {
+                    ((InventoryHolder) state).getInventory().setContents(InventoryHelper.readInventory(
+                            new DataInputStream(new ByteArrayInputStream((byte[]) yaml.get(INVENTORY_KEY)))));
+                } catch (IOException ex) {
+                    throw new InvalidConfigurationException(ex);
+                }
+            } else if (yaml.isConfigurationSection(INVENTORY_KEY)) {
                 ((InventoryHolder) state).getInventory().setContents(
                         InventoryHelper.deserializeInventory(yaml.getConfigurationSection(INVENTORY_KEY))
                 );
@@ -318,4 +368,33 @@ public class BlockStateSerializer {
         }
     }
 
+    /**
+     * Returns whether the given {@link BlockState} has a block entity whose
+     * data is captured by {@link #serializeState(BlockState)}.
+     *
+     * @param state The {@link BlockState} to check
+     * @return Whether the state has a block entity
+     */
+    public static boolean hasBlockEntity(BlockState state) {
+        return state instanceof InventoryHolder
+                || state instanceof Sign
+                || state instanceof Banner
+                || state instanceof CreatureSpawner
+                || state instanceof NoteBlock
+                || state instanceof Jukebox
+                || state instanceof Skull
+                || state instanceof CommandBlock
+                || state instanceof FlowerPot;
+    }
+
+    private static byte[] encodeInventory(ItemStack[] contents) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            InventoryHelper.writeInventory(new DataOutputStream(bytes), contents);
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to write to in-memory buffer", ex);
+        }
+        return bytes.toByteArray();
+    }
+
 }
@@ -37,6 +37,8 @@ import org.bukkit.entity.Hanging;
 import org.bukkit.entity.ItemFrame;
 import org.bukkit.entity.Painting;
 
+import java.io.IOException;
+
 /**
  * Static utility class for serialization of entity state.
  *
@@ -71,46 +73,77 @@ public class EntityStateSerializer {
 
     private static final String PAINTING_ART = "art";
 
-    public static String serializeState(Entity entity) {
-        YamlConfiguration yaml = new YamlConfiguration();
+    /**
+     * Serializes the state of the given {@link Entity} to the binary state
+     * format, writing each field straight from the entity.
+     *
+     * @param entity The {@link Entity} to serialize
+     * @return The binary state
+     */
+    public static byte[] serializeState(Entity entity) {
+        BinaryStateCodec.Writer writer = new BinaryStateCodec.Writer();
         if (entity instanceof ArmorStand) {
             EulerAngleSerializer eas = EulerAngleSerializer.getInstance();
             ArmorStand stand = (ArmorStand) entity;
-            yaml.set(PITCH, stand.getLocation().getPitch());
-            yaml.set(YAW, stand.getLocation().getYaw());
-            yaml.set(ARMOR_STAND_HELMET, stand.getHelmet());
-            yaml.set(ARMOR_STAND_CHESTPLATE, stand.getChestplate());
-            yaml.set(ARMOR_STAND_LEGGINGS, stand.getLeggings());
-            yaml.set(ARMOR_STAND_BOOTS, stand.getBoots());
-            yaml.set(ARMOR_STAND_HAND, stand.getItemInHand());
-            yaml.set(ARMOR_STAND_POSE_HEAD, eas.serialize(stand.getHeadPose()));
-            yaml.set(ARMOR_STAND_POSE_BODY, eas.serialize(stand.getBodyPose()));
-            yaml.set(ARMOR_STAND_POSE_ARM_LEFT, eas.serialize(stand.getLeftArmPose()));
-            yaml.set(ARMOR_STAND_POSE_ARM_RIGHT, eas.serialize(stand.getRightArmPose()));
-            yaml.set(ARMOR_STAND_POSE_LEG_LEFT, eas.serialize(stand.getLeftLegPose()));
-            yaml.set(ARMOR_STAND_POSE_LEG_RIGHT, eas.serialize(stand.getRightLegPose()));
-            yaml.set(ARMOR_STAND_ARMS, stand.hasArms());
-            yaml.set(ARMOR_STAND_BASE_PLATE, stand.hasBasePlate());
-            yaml.set(ARMOR_STAND_GRAVITY, stand.hasGravity());
-            yaml.set(ARMOR_STAND_SMALL, stand.isSmall());
-            yaml.set(ARMOR_STAND_VISIBLE, stand.isVisible());
+            writer.put(PITCH, stand.getLocation().getPitch());
+            writer.put(YAW, stand.getLocation().getYaw());
+            writer.put(ARMOR_STAND_HELMET, stand.getHelmet());
+            writer.put(ARMOR_STAND_CHESTPLATE, stand.getChestplate());
+            writer.put(ARMOR_STAND_LEGGINGS, stand.getLeggings());
+            writer.put(ARMOR_STAND_BOOTS, stand.getBoots());
+            writer.put(ARMOR_STAND_HAND, stand.getItemInHand());
+            writer.put(ARMOR_STAND_POSE_HEAD, eas.serialize(stand.getHeadPose()));
+            writer.put(ARMOR_STAND_POSE_BODY, eas.serialize(stand.getBodyPose()));
+            writer.put(ARMOR_STAND_POSE_ARM_LEFT, eas.serialize(stand.getLeftArmPose()));
+            writer.put(ARMOR_STAND_POSE_ARM_RIGHT, eas.serialize(stand.getRightArmPose()));
+            writer.put(ARMOR_STAND_POSE_LEG_LEFT, eas.serialize(stand.getLeftLegPose()));
+            writer.put(ARMOR_STAND_POSE_LEG_RIGHT, eas.serialize(stand.getRightLegPose()));
+            writer.put(ARMOR_STAND_ARMS, stand.hasArms());
+            writer.put(ARMOR_STAND_BASE_PLATE, stand.hasBasePlate());
+            writer.put(ARMOR_STAND_GRAVITY, stand.hasGravity());
+            writer.put(ARMOR_STAND_SMALL, stand.isSmall());
+            writer.put(ARMOR_STAND_VISIBLE, stand.isVisible());
         } else if (entity instanceof Hanging) {
-            yaml.set(HANGING_FACING, ((Hanging) entity).getFacing().name());
+            writer.put(HANGING_FACING, ((Hanging) entity).getFacing().name());
             if (entity instanceof ItemFrame) {
-                yaml.set(ITEM_FRAME_ITEM, ((ItemFrame) entity).getItem());
-                yaml.set(ITEM_FRAME_ROTATION, ((ItemFrame) entity).getRotation().name());
+                writer.put(ITEM_FRAME_ITEM, ((ItemFrame) entity).getItem());
+                writer.put(ITEM_FRAME_ROTATION, ((ItemFrame) entity).getRotation().name());
             } else if (entity instanceof Painting) {
-                yaml.set(PAINTING_ART, ((Painting) entity).getArt().name());
+                writer.put(PAINTING_ART, ((Painting) entity).getArt().name());
             }
         }
 
-        return yaml.saveToString();
+        return writer.toByteArray();
     }
 
+    /**
+     * Applies the given binary state to the given {@link Entity}.
+     *
+     * @param entity The {@link Entity} to apply the state to
+     * @param state The binary state to apply
+     * @throws InvalidConfigurationException If the state is malformed
+     */
+    public static void deserializeState(Entity entity, byte[] state) throws InvalidConfigurationException {
+        try {
+            applyState(entity, BinaryStateCodec.decode(state));
+        } catch (IOException ex) {
+            throw new InvalidConfigurationException(ex);
+        }
+    }
+
+    /**
+     * Applies the given YAML state serial, as written by older versions of
+     * Steel, to the given {@link Entity}.
+     *
+     * @param entity The {@link Entity} to apply the state to
+     * @param serial The YAML state serial to apply
+     * @throws InvalidConfigurationException If the serial is malformed
+     */
     public static void deserializeState(Entity entity, String serial) throws InvalidConfigurationException {
-        YamlConfiguration yaml = new YamlConfiguration();
-        yaml.loadFromString(serial);
+        applyState(entity, BinaryStateCodec.loadYaml(serial));
+    }
 
+    private static void applyState(Entity entity, YamlConfiguration yaml) {
         if (entity instanceof ArmorStand) {
             EulerAngleSerializer eas = EulerAngleSerializer.getInstance();
             ArmorStand stand = (ArmorStand) entity;
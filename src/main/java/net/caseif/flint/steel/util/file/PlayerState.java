@@ -0,0 +1,190 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.util.file;
+
+import net.caseif.flint.util.physical.Location3D;
+
+import com.google.common.base.Optional;
+import org.bukkit.GameMode;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * An immutable snapshot of the state Steel holds on a player's behalf while
+ * they are in a round: their inventory, return location, game mode and
+ * whether they disconnected mid-round.
+ */
+public final class PlayerState {
+
+    static final PlayerState EMPTY = new PlayerState(null, null, null, false, null);
+
+    private final ItemStack[] contents;
+    private final ItemStack[] armor;
+    private final Location3D returnLocation;
+    private final boolean offline;
+    private final GameMode gameMode;
+
+    PlayerState(ItemStack[] contents, ItemStack[] armor, Location3D returnLocation, boolean offline,
+            GameMode gameMode) {
+        this.contents = contents;
+        this.armor = armor;
+        this.returnLocation = returnLocation;
+        this.offline = offline;
+        this.gameMode = gameMode;
+    }
+
+    /**
+     * Returns whether an inventory is stored.
+     *
+     * @return Whether an inventory is stored
+     */
+    public boolean hasInventory() {
+        return contents != null;
+    }
+
+    /**
+     * Returns a copy of the stored main inventory contents.
+     *
+     * @return A copy of the stored main inventory contents, or {@code null} if
+     *     no inventory is stored
+     */
+    public ItemStack[] getContents() {
+        return contents != null ? copy(contents) : null;
+    }
+
+    /**
+     * Returns a copy of the stored armor contents.
+     *
+     * @return A copy of the stored armor contents, or {@code null} if they
+     *     were not stored
+     */
+    public ItemStack[] getArmor() {
+        return armor != null ? copy(armor) : null;
+    }
+
+    /**
+     * Returns the location the player should be returned to.
+     *
+     * @return The player's return location, if stored
+     */
+    public Optional<Location3D> getReturnLocation() {
+        return Optional.fromNullable(returnLocation);
+    }
+
+    /**
+     * Returns whether the player disconnected while in a round.
+     *
+     * @return Whether the player disconnected while in a round
+     */
+    public boolean isOffline() {
+        return offline;
+    }
+
+    /**
+     * Returns the game mode the player should be restored to.
+     *
+     * @return The player's previous game mode, if stored
+     */
+    public Optional<GameMode> getGameMode() {
+        return Optional.fromNullable(gameMode);
+    }
+
+    /**
+     * Returns whether nothing at all is stored.
+     *
+     * @return Whether nothing is stored
+     */
+    public boolean isEmpty() {
+        return contents == null && returnLocation == null && !offline && gameMode == null;
+    }
+
+    /**
+     * Returns a copy of this state with the given inventory contents, which
+     * are copied.
+     *
+     * @param contents The main inventory contents
+     * @param armor The armor contents, or {@code null} to omit them
+     * @return The new state
+     */
+    public PlayerState withInventory(ItemStack[] contents, ItemStack[] armor) {
+        return new PlayerState(copy(contents), armor != null ? copy(armor) : null, returnLocation, offline, gameMode);
+    }
+
+    /**
+     * Returns a copy of this state without an inventory.
+     *
+     * @return The new state
+     */
+    public PlayerState withoutInventory() {
+        return new PlayerState(null, null, returnLocation, offline, gameMode);
+    }
+
+    /**
+     * Returns a copy of this state with the given return location.
+     *
+     * @param returnLocation The return location, or {@code null} to clear it
+     * @return The new state
+     */
+    public PlayerState withReturnLocation(Location3D returnLocation) {
+        return new PlayerState(contents, armor, returnLocation, offline, gameMode);
+    }
+
+    /**
+     * Returns a copy of this state with the given offline flag.
+     *
+     * @param offline Whether the player disconnected while in a round
+     * @return The new state
+     */
+    public PlayerState withOffline(boolean offline) {
+        return new PlayerState(contents, armor, returnLocation, offline, gameMode);
+    }
+
+    /**
+     * Returns a copy of this state with the given previous game mode.
+     *
+     * @param gameMode The previous game mode, or {@code null} to clear it
+     * @return The new state
+     */
+    public PlayerState withGameMode(GameMode gameMode) {
+        return new PlayerState(contents, armor, returnLocation, offline, gameMode);
+    }
+
+    // raw accessors for serialization, which don't copy
+    ItemStack[] contents() {
+        return contents;
+    }
+
+    ItemStack[] armor() {
+        return armor;
+    }
+
+    private static ItemStack[] copy(ItemStack[] items) {
+        ItemStack[] copy = new ItemStack[items.length];
+        for (int i = 0; i < items.length; i++) {
+            copy[i] = items[i] != null ? items[i].clone() : null;
+        }
+        return copy;
+    }
+
+}
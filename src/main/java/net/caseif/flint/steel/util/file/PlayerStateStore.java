@@ -0,0 +1,544 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2016, Max Roncace <me@caseif.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.caseif.flint.steel.util.file;
+
+import net.caseif.flint.common.util.helper.CommonPlayerHelper;
+import net.caseif.flint.steel.SteelCore;
+import net.caseif.flint.steel.util.helper.InventoryHelper;
+import net.caseif.flint.util.physical.Location3D;
+
+import com.google.common.base.Optional;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.bukkit.GameMode;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-safe store for the {@link PlayerState}s of all players, backed by a
+ * single append-only log.
+ *
+ * <p>Every change to a player's state appends one checksummed record holding
+ * their complete state, so the latest record for a player supersedes any
+ * before it. The current states are indexed in memory, and the log is
+ * appended to and periodically compacted by a single background thread. A
+ * torn record at the end of the log (e.g. after a crash) is discarded when
+ * the log is loaded.</p>
+ *
+ * <p>When the log is first loaded, inventories, return locations and
+ * offline flags held in the stores used by older versions are imported into
+ * it. Migrated inventory files are deleted; the location and offline flag
+ * stores are shared with other Flint platforms, so a marker file is written
+ * instead once they have been imported.</p>
+ *
+ * <p>This class must only be used from the main thread.</p>
+ */
+public final class PlayerStateStore {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final int FLAG_INVENTORY = 1;
+    private static final int FLAG_ARMOR = 1 << 1;
+    private static final int FLAG_LOCATION = 1 << 2;
+    private static final int FLAG_OFFLINE = 1 << 3;
+    private static final int FLAG_GAME_MODE = 1 << 4;
+
+    // length and checksum
+    private static final int RECORD_HEADER_LENGTH = 8;
+    private static final int MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+    // the log is compacted once it reaches this size and is mostly superseded records
+    private static final long COMPACTION_THRESHOLD = 64 * 1024;
+
+    // keys used by the legacy YAML inventory format
+    private static final String LEGACY_PRIMARY_KEY = "primary";
+    private static final String LEGACY_ARMOR_KEY = "armor";
+
+    private static final Map<UUID, PlayerState> STATES = new HashMap<>();
+    private static boolean loaded;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Steel Player State Store");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // the following are owned by the store thread once the log is loaded
+    private static final Map<UUID, byte[]> LIVE_RECORDS = new HashMap<>();
+    private static long liveBytes;
+    private static FileChannel channel;
+
+    private PlayerStateStore() {
+    }
+
+    /**
+     * Gets the stored state of the player with the given UUID.
+     *
+     * @param uuid The UUID of the player
+     * @return The stored state, or {@link PlayerState#isEmpty() an empty
+     *     state} if nothing is stored
+     */
+    public static PlayerState get(UUID uuid) {
+        load();
+        PlayerState state = STATES.get(uuid);
+        return state != null ? state : PlayerState.EMPTY;
+    }
+
+    /**
+     * Replaces the stored state of the player with the given UUID. The state
+     * is applied to the in-memory index immediately and appended to the log
+     * in the background.
+     *
+     * @param uuid The UUID of the player
+     * @param state The new state
+     */
+    public static void put(final UUID uuid, final PlayerState state) {
+        load();
+        if (state.isEmpty()) {
+            if (STATES.remove(uuid) == null) {
+                return; // nothing to clear
+            }
+        } else {
+            STATES.put(uuid, state);
+        }
+
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    append(uuid, encode(uuid, state), state.isEmpty());
+                } catch (IOException | RuntimeException ex) {
+                    SteelCore.logSevere("Failed to write state of player " + uuid + " to persistent storage");
+                    ex.printStackTrace();
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads the log into memory if this has not already been done, importing
+     * any inventories stored by older versions.
+     */
+    public static void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        File file = SteelDataFiles.PLAYER_STATE_STORE.getFile();
+        if (file.exists()) {
+            try {
+                readLog(file);
+            } catch (IOException ex) {
+                SteelCore.logSevere("Failed to load player state store");
+                ex.printStackTrace();
+            }
+        }
+
+        migrateLegacyInventories();
+        migrateLegacyPlayerStores();
+    }
+
+    /**
+     * Blocks until all pending writes have been completed and stops the
+     * background writer.
+     */
+    public static void shutdown() {
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                closeChannel();
+            }
+        });
+        EXECUTOR.shutdown();
+        try {
+            if (!EXECUTOR.awaitTermination(10, TimeUnit.SECONDS)) {
+                SteelCore.logSevere("Timed out while writing player states to persistent storage");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void readLog(File file) throws IOException {
+        long goodLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    if (checksum(payload) != checksum) {
+                        break;
+                    }
+                } catch (EOFException ex) {
+                    break;
+                }
+                goodLength += RECORD_HEADER_LENGTH + payload.length;
+                index(payload);
+            }
+        }
+
+        if (goodLength < file.length()) {
+            SteelCore.logWarning("Discarding " + (file.length() - goodLength) + " bytes of incomplete records "
+                    + "from the player state store");
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(goodLength);
+            }
+        }
+    }
+
+    private static void index(byte[] payload) {
+        UUID uuid;
+        PlayerState state;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte version = in.readByte();
+            if (version > FORMAT_VERSION) {
+                throw new IOException("Unsupported record version " + version);
+            }
+            uuid = new UUID(in.readLong(), in.readLong());
+            state = decode(in);
+        } catch (IOException ex) {
+            SteelCore.logSevere("Skipping unreadable record in player state store");
+            ex.printStackTrace();
+            return;
+        }
+
+        byte[] previous = state.isEmpty() ? LIVE_RECORDS.remove(uuid) : LIVE_RECORDS.put(uuid, payload);
+        liveBytes += (state.isEmpty() ? 0 : RECORD_HEADER_LENGTH + payload.length)
+                - (previous != null ? RECORD_HEADER_LENGTH + previous.length : 0);
+        if (state.isEmpty()) {
+            STATES.remove(uuid);
+        } else {
+            STATES.put(uuid, state);
+        }
+    }
+
+    private static byte[] encode(UUID uuid, PlayerState state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+
+            int flags = (state.hasInventory() ? FLAG_INVENTORY : 0)
+                    | (state.armor() != null ? FLAG_ARMOR : 0)
+                    | (state.getReturnLocation().isPresent() ? FLAG_LOCATION : 0)
+                    | (state.isOffline() ? FLAG_OFFLINE : 0)
+                    | (state.getGameMode().isPresent() ? FLAG_GAME_MODE : 0);
+            out.writeByte(flags);
+
+            if (state.hasInventory()) {
+                InventoryHelper.writeInventory(out, state.contents());
+            }
+            if (state.armor() != null) {
+                InventoryHelper.writeInventory(out, state.armor());
+            }
+            if (state.getReturnLocation().isPresent()) {
+                Location3D loc = state.getReturnLocation().get();
+                out.writeUTF(loc.getWorld().or(""));
+                out.writeDouble(loc.getX());
+                out.writeDouble(loc.getY());
+                out.writeDouble(loc.getZ());
+            }
+            if (state.getGameMode().isPresent()) {
+                out.writeUTF(state.getGameMode().get().name());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static PlayerState decode(DataInputStream in) throws IOException {
+        int flags = in.readUnsignedByte();
+        ItemStack[] contents = (flags & FLAG_INVENTORY) != 0 ? InventoryHelper.readInventory(in) : null;
+        ItemStack[] armor = (flags & FLAG_ARMOR) != 0 ? InventoryHelper.readInventory(in) : null;
+        Location3D loc = null;
+        if ((flags & FLAG_LOCATION) != 0) {
+            String world = in.readUTF();
+            double x = in.readDouble();
+            double y = in.readDouble();
+            double z = in.readDouble();
+            loc = world.isEmpty() ? new Location3D(x, y, z) : new Location3D(world, x, y, z);
+        }
+        GameMode gameMode = null;
+        if ((flags & FLAG_GAME_MODE) != 0) {
+            String name = in.readUTF();
+            try {
+                gameMode = GameMode.valueOf(name);
+            } catch (IllegalArgumentException ex) {
+                SteelCore.logWarning("Ignoring unknown stored game mode " + name);
+            }
+        }
+        return new PlayerState(contents, armor, loc, (flags & FLAG_OFFLINE) != 0, gameMode);
+    }
+
+    // runs on the store thread
+    private static void append(UUID uuid, byte[] payload, boolean empty) throws IOException {
+        byte[] previous = empty ? LIVE_RECORDS.remove(uuid) : LIVE_RECORDS.put(uuid, payload);
+        liveBytes += (empty ? 0 : RECORD_HEADER_LENGTH + payload.length)
+                - (previous != null ? RECORD_HEADER_LENGTH + previous.length : 0);
+
+        FileChannel ch = getChannel();
+        writeRecord(ch, payload);
+        ch.force(false);
+
+        long size = ch.size();
+        if (size >= COMPACTION_THRESHOLD && size > liveBytes * 2) {
+            compact();
+        }
+    }
+
+    // runs on the store thread
+    private static void compact() throws IOException {
+        File file = SteelDataFiles.PLAYER_STATE_STORE.getFile();
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (byte[] payload : LIVE_RECORDS.values()) {
+                writeRecord(out, payload);
+            }
+            out.force(true);
+        }
+
+        closeChannel();
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        SteelCore.logVerbose("Compacted player state store to " + LIVE_RECORDS.size() + " records");
+    }
+
+    private static void writeRecord(FileChannel ch, byte[] payload) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER_LENGTH + payload.length);
+        buf.putInt(payload.length);
+        buf.putInt(checksum(payload));
+        buf.put(payload);
+        buf.flip();
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+    }
+
+    private static FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            File file = SteelDataFiles.PLAYER_STATE_STORE.getFile();
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    private static void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                SteelCore.logWarning("Failed to close player state store");
+            }
+            channel = null;
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    // imports inventories stored one file per player by older versions
+    private static void migrateLegacyInventories() {
+        File dir = SteelDataFiles.PLAYER_INVENTORY_DIR.getFile();
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(".yml")) {
+                continue;
+            }
+            UUID uuid;
+            try {
+                uuid = UUID.fromString(name.substring(0, name.length() - 4));
+            } catch (IllegalArgumentException ex) {
+                continue;
+            }
+
+            try {
+                byte[] data = Files.readAllBytes(file.toPath());
+                ItemStack[][] inv = parseLegacyYaml(new String(data, StandardCharsets.UTF_8));
+                put(uuid, get(uuid).withInventory(inv[0], inv[1]));
+                SteelCore.logVerbose("Migrated stored inventory of player " + uuid);
+            } catch (IOException | InvalidConfigurationException ex) {
+                SteelCore.logSevere("Failed to migrate stored inventory of player " + uuid);
+                ex.printStackTrace();
+                continue;
+            }
+
+            // make sure the migrated inventory is durable before removing the original
+            final File migrated = file;
+            EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!migrated.delete()) {
+                        SteelCore.logWarning("Failed to delete migrated inventory file " + migrated.getName());
+                    }
+                }
+            });
+        }
+    }
+
+    // imports return locations and offline flags from the stores shared with other Flint platforms
+    private static void migrateLegacyPlayerStores() {
+        final File marker = SteelDataFiles.PLAYER_STATE_MIGRATION_MARKER.getFile();
+        if (marker.exists()) {
+            return; // already imported by a previous run
+        }
+
+        File locStore = SteelDataFiles.PLAYER_LOCATION_STORE.getFile();
+        for (UUID uuid : readLegacyUuids(locStore)) {
+            try {
+                Optional<Location3D> loc = CommonPlayerHelper.getReturnLocation(uuid);
+                if (loc.isPresent()) {
+                    put(uuid, get(uuid).withReturnLocation(loc.get()));
+                }
+            } catch (IllegalArgumentException | IOException ex) {
+                SteelCore.logSevere("Failed to migrate stored location of player " + uuid);
+                ex.printStackTrace();
+            }
+        }
+
+        File offlineStore = SteelDataFiles.OFFLINE_PLAYER_STORE.getFile();
+        for (UUID uuid : readLegacyUuids(offlineStore)) {
+            if (CommonPlayerHelper.checkOfflineFlag(uuid)) {
+                put(uuid, get(uuid).withOffline(true));
+            }
+        }
+
+        // queued behind the imported records so the marker never exists without them
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (!marker.createNewFile()) {
+                        SteelCore.logWarning("Legacy player store migration marker already exists");
+                    }
+                } catch (IOException ex) {
+                    SteelCore.logWarning("Failed to record migration of legacy player stores");
+                    ex.printStackTrace();
+                }
+            }
+        });
+    }
+
+    private static List<UUID> readLegacyUuids(File store) {
+        List<UUID> uuids = new ArrayList<>();
+        if (!store.exists()) {
+            return uuids;
+        }
+        try (FileReader reader = new FileReader(store)) {
+            JsonElement json = new JsonParser().parse(reader);
+            List<String> keys = new ArrayList<>();
+            if (json.isJsonObject()) {
+                for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject().entrySet()) {
+                    keys.add(entry.getKey());
+                }
+            } else if (json.isJsonArray()) {
+                for (JsonElement element : json.getAsJsonArray()) {
+                    keys.add(element.getAsString());
+                }
+            }
+            for (String key : keys) {
+                try {
+                    uuids.add(UUID.fromString(key));
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            SteelCore.logSevere("Failed to read legacy player store " + store.getName());
+            ex.printStackTrace();
+        }
+        return uuids;
+    }
+
+    private static ItemStack[][] parseLegacyYaml(String serial) throws InvalidConfigurationException {
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.loadFromString(serial);
+        if (!yaml.isConfigurationSection(LEGACY_PRIMARY_KEY)) {
+            throw new InvalidConfigurationException("Stored inventory is missing required section \""
+                    + LEGACY_PRIMARY_KEY + "\"");
+        }
+        try {
+            ItemStack[] contents
+                    = InventoryHelper.deserializeInventory(yaml.getConfigurationSection(LEGACY_PRIMARY_KEY));
+            ItemStack[] armor = yaml.isConfigurationSection(LEGACY_ARMOR_KEY)
+                    ? InventoryHelper.deserializeInventory(yaml.getConfigurationSection(LEGACY_ARMOR_KEY))
+                    : null;
+            return new ItemStack[][] {contents, armor};
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidConfigurationException(ex);
+        }
+    }
+
+}
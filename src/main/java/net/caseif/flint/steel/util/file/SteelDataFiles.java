@@ -35,6 +35,19 @@ public class SteelDataFiles extends CommonDataFiles {
 
     public static final CoreDataFile TELEMETRY_UUID_STORE = new CoreDataFile("uuid.txt");
 
+    public static final CoreDataFile PLAYER_STATE_STORE = new CoreDataFile("player_state.dat", false, false);
+    public static final CoreDataFile PLAYER_STATE_MIGRATION_MARKER
+            = new CoreDataFile("player_state.migrated", false, false);
+
+    public static final MinigameDataFile ROLLBACK_RECORD_STORE
+            = new MinigameDataFile("rollback_records.db", false, false);
+    public static final MinigameDataFile ROLLBACK_PALETTE_STORE
+            = new MinigameDataFile("rollback_palette.db", false, false);
+    public static final MinigameDataFile ROLLBACK_STATE_STORE
+            = new MinigameDataFile("rollback_states.db", false, false);
+    public static final MinigameDataFile ROLLBACK_JOURNAL_STORE
+            = new MinigameDataFile("rollback_journal.db", false, false);
+
     // for old file formats
     public static final CoreDataFile CORE_OLD_DATA_DIR = new CoreDataFile("old", true, false);
     public static final CoreDataFile OLD_OFFLINE_PLAYER_STORE = new CoreDataFile("offline_players.yml", false, false);
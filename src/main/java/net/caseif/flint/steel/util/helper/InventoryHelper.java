@@ -24,14 +24,22 @@
 
 package net.caseif.flint.steel.util.helper;
 
+import net.caseif.flint.steel.util.agent.rollback.serialization.BinaryStateCodec;
+
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import org.bukkit.Material;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
 /**
  * Static utility class for inventory-related functionality.
  *
@@ -66,6 +74,65 @@ public class InventoryHelper {
         return contents;
     }
 
+    /**
+     * Writes the given inventory contents to the given {@link DataOutput} in a
+     * compact binary form, consisting of the capacity, a bitmap of occupied
+     * slots and the serialized item in each occupied slot.
+     *
+     * @param out The {@link DataOutput} to write to
+     * @param contents The inventory contents to write
+     * @throws IOException If an exception occurs while writing
+     */
+    public static void writeInventory(DataOutput out, ItemStack[] contents) throws IOException {
+        byte[] bitmap = new byte[(contents.length + 7) / 8];
+        for (int i = 0; i < contents.length; i++) {
+            if (isOccupied(contents[i])) {
+                bitmap[i / 8] |= 1 << (i % 8);
+            }
+        }
+        out.writeShort(contents.length);
+        out.write(bitmap);
+        for (ItemStack item : contents) {
+            if (isOccupied(item)) {
+                BinaryStateCodec.writeValue(out, item.serialize());
+            }
+        }
+    }
+
+    /**
+     * Reads inventory contents written by
+     * {@link #writeInventory(DataOutput, ItemStack[])}.
+     *
+     * @param in The {@link DataInput} to read from
+     * @return The inventory contents which were read
+     * @throws IOException If an exception occurs while reading or if the data
+     *     is malformed
+     */
+    @SuppressWarnings("unchecked")
+    public static ItemStack[] readInventory(DataInput in) throws IOException {
+        ItemStack[] contents = new ItemStack[in.readUnsignedShort()];
+        byte[] bitmap = new byte[(contents.length + 7) / 8];
+        in.readFully(bitmap);
+        for (int i = 0; i < contents.length; i++) {
+            if ((bitmap[i / 8] & (1 << (i % 8))) != 0) {
+                Object serial = BinaryStateCodec.readValue(in);
+                if (!(serial instanceof Map)) {
+                    throw new IOException("Malformed item in slot " + i);
+                }
+                try {
+                    contents[i] = ItemStack.deserialize((Map<String, Object>) serial);
+                } catch (IllegalArgumentException | ClassCastException ex) {
+                    throw new IOException("Malformed item in slot " + i, ex);
+                }
+            }
+        }
+        return contents;
+    }
+
+    private static boolean isOccupied(ItemStack item) {
+        return item != null && item.getType() != Material.AIR;
+    }
+
     private static JsonObject csToJson(ConfigurationSection cs) {
         JsonObject json = new JsonObject();
         for (String key : cs.getKeys(false)) {
@@ -24,11 +24,20 @@
 
 package net.caseif.flint.steel.util.helper;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+import net.caseif.flint.util.physical.Boundary;
 import net.caseif.flint.util.physical.Location3D;
 
+import com.google.common.base.Optional;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.WorldCreator;
+import org.bukkit.block.Block;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Static utility class for location-related functionality.
@@ -37,15 +46,132 @@ import org.bukkit.WorldCreator;
  */
 public class LocationHelper {
 
+    // world handles by name, maintained by WorldListener
+    private static final Map<String, World> WORLDS = new ConcurrentHashMap<>();
+
     public static Location3D convertLocation(Location location) {
         return new Location3D(location.getWorld().getName(), location.getX(), location.getY(), location.getZ());
     }
 
     public static Location convertLocation(Location3D location) {
-        return new Location(location.getWorld().isPresent()
-                ? Bukkit.createWorld(new WorldCreator(location.getWorld().get()))
-                : null,
+        return new Location(location.getWorld().isPresent() ? getWorld(location.getWorld().get()) : null,
                 location.getX(), location.getY(), location.getZ());
     }
 
+    /**
+     * Gets the block at the given {@link Location3D} without allocating an
+     * intermediate {@link Location}.
+     *
+     * @param location The location of the block
+     * @return The block at the given location
+     * @throws IllegalArgumentException If the location does not specify a
+     *     world
+     */
+    public static Block getBlock(Location3D location) throws IllegalArgumentException {
+        checkArgument(location.getWorld().isPresent(), "Location must contain world");
+        return getWorld(location.getWorld().get()).getBlockAt(
+                (int) Math.floor(location.getX()),
+                (int) Math.floor(location.getY()),
+                (int) Math.floor(location.getZ())
+        );
+    }
+
+    /**
+     * Gets the world with the given name, loading it if necessary.
+     *
+     * <p>Handles are cached, so this avoids going through world creation for
+     * worlds which are already loaded.</p>
+     *
+     * @param name The name of the world
+     * @return The world with the given name
+     */
+    public static World getWorld(String name) {
+        World world = WORLDS.get(name);
+        if (world == null) {
+            world = Bukkit.getWorld(name);
+            if (world == null) {
+                world = Bukkit.createWorld(new WorldCreator(name));
+            }
+            if (world != null) {
+                WORLDS.put(name, world);
+            }
+        }
+        return world;
+    }
+
+    /**
+     * Caches the handle for the given world.
+     *
+     * @param world The world to cache
+     */
+    public static void cacheWorld(World world) {
+        WORLDS.put(world.getName(), world);
+    }
+
+    /**
+     * Evicts the cached handle for the given world, if present.
+     *
+     * @param world The world to evict
+     */
+    public static void invalidateWorld(World world) {
+        WORLDS.remove(world.getName());
+    }
+
+    /**
+     * Checks whether the given coordinates fall within the given
+     * {@link Boundary}, without regard to world.
+     *
+     * @param bound The {@link Boundary} to check against
+     * @param x The x-coordinate to check
+     * @param y The y-coordinate to check
+     * @param z The z-coordinate to check
+     * @return Whether the coordinates fall within the boundary
+     */
+    public static boolean contains(Boundary bound, double x, double y, double z) {
+        Location3D lower = bound.getLowerBound();
+        Location3D upper = bound.getUpperBound();
+        return x >= lower.getX() && x <= upper.getX()
+                && y >= lower.getY() && y <= upper.getY()
+                && z >= lower.getZ() && z <= upper.getZ();
+    }
+
+    /**
+     * Checks whether the given coordinates in the given world fall within the
+     * given {@link Boundary}. If the boundary does not specify a world, only
+     * the coordinates are checked.
+     *
+     * @param bound The {@link Boundary} to check against
+     * @param world The name of the world to check
+     * @param x The x-coordinate to check
+     * @param y The y-coordinate to check
+     * @param z The z-coordinate to check
+     * @return Whether the location falls within the boundary
+     */
+    public static boolean contains(Boundary bound, String world, double x, double y, double z) {
+        Optional<String> boundWorld = bound.getLowerBound().getWorld();
+        return (!boundWorld.isPresent() || boundWorld.get().equals(world)) && contains(bound, x, y, z);
+    }
+
+    /**
+     * Checks whether the whole of the block at the given coordinates in the
+     * given world falls within the given {@link Boundary}, i.e. whether no
+     * face of the boundary passes through it.
+     *
+     * @param bound The {@link Boundary} to check against
+     * @param world The name of the world to check
+     * @param x The x-coordinate of the block
+     * @param y The y-coordinate of the block
+     * @param z The z-coordinate of the block
+     * @return Whether the block falls entirely within the boundary
+     */
+    public static boolean containsBlock(Boundary bound, String world, int x, int y, int z) {
+        Location3D lower = bound.getLowerBound();
+        Location3D upper = bound.getUpperBound();
+        Optional<String> boundWorld = lower.getWorld();
+        return (!boundWorld.isPresent() || boundWorld.get().equals(world))
+                && x >= lower.getX() && x + 1 <= upper.getX()
+                && y >= lower.getY() && y + 1 <= upper.getY()
+                && z >= lower.getZ() && z + 1 <= upper.getZ();
+    }
+
 }
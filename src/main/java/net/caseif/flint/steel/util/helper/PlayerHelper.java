@@ -24,25 +24,25 @@
 
 package net.caseif.flint.steel.util.helper;
 
-import net.caseif.flint.common.util.helper.CommonPlayerHelper;
 import net.caseif.flint.steel.SteelCore;
-import net.caseif.flint.steel.util.file.SteelDataFiles;
+import net.caseif.flint.steel.util.file.PlayerState;
+import net.caseif.flint.steel.util.file.PlayerStateStore;
 import net.caseif.flint.util.physical.Location3D;
 
 import com.google.common.base.Optional;
 import org.bukkit.Bukkit;
+import org.bukkit.GameMode;
 import org.bukkit.configuration.InvalidConfigurationException;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.PlayerInventory;
 
-import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.UUID;
 
 /**
  * Static utility class for player-related functionality.
@@ -51,9 +51,6 @@ import java.util.Collection;
  */
 public class PlayerHelper {
 
-    private static final String PLAYER_INVENTORY_PRIMARY_KEY = "primary";
-    private static final String PLAYER_INVENTORY_ARMOR_KEY = "armor";
-
     private static Method getOnlinePlayers;
     public static boolean newOnlinePlayersMethod = false;
 
@@ -72,6 +69,9 @@ public class PlayerHelper {
     /**
      * Pushes the inventory of the given player into persistent storage.
      *
+     * <p>The inventory is captured immediately, but written to disk in the
+     * background.</p>
+     *
      * @param player The {@link Player} to push the inventory of
      * @throws IOException If an exception occurs while saving into persistent
      *     storage
@@ -79,9 +79,8 @@ public class PlayerHelper {
     @SuppressWarnings("deprecation")
     public static void pushInventory(Player player) throws IOException {
         PlayerInventory inv = player.getInventory();
-        // the file to store the inventory in
-        File storage = new File(SteelDataFiles.PLAYER_INVENTORY_DIR.getFile(), player.getUniqueId() + ".yml");
-        if (storage.exists()) { // verify file isn't already present on disk (meaning it wasn't popped the last time)
+        // verify inventory isn't already stored (meaning it wasn't popped the last time)
+        if (PlayerStateStore.get(player.getUniqueId()).hasInventory()) {
             SteelCore.logVerbose("Inventory push requested for player " + player.getName() + ", but "
                     + "inventory was already present in persistent storage. Popping stored inventory first.");
             try {
@@ -90,10 +89,8 @@ public class PlayerHelper {
                 throw new IOException(ex); // this is probably a bad thing of me to do but it's for a fringe case anyway
             }
         }
-        YamlConfiguration yaml = new YamlConfiguration();
-        yaml.set(PLAYER_INVENTORY_PRIMARY_KEY, InventoryHelper.serializeInventory(inv));
-        yaml.set(PLAYER_INVENTORY_ARMOR_KEY, InventoryHelper.serializeInventory(inv.getArmorContents()));
-        yaml.save(storage); // save to disk
+        PlayerStateStore.put(player.getUniqueId(),
+                PlayerStateStore.get(player.getUniqueId()).withInventory(inv.getContents(), inv.getArmorContents()));
         inv.clear(); // clear the inventory to complete the push to disk
         inv.setArmorContents(new ItemStack[inv.getArmorContents().length]);
         player.updateInventory();
@@ -109,34 +106,21 @@ public class PlayerHelper {
      *     storage
      * @throws InvalidConfigurationException If the stored inventory is invalid
      */
-    //TODO: generalize some of this code for use with rollback storage
     @SuppressWarnings("deprecation")
     public static void popInventory(Player player) throws IllegalArgumentException, IOException,
             InvalidConfigurationException {
-        // the file to load the inventory from
-        File storage = new File(SteelDataFiles.PLAYER_INVENTORY_DIR.getFile(), player.getUniqueId() + ".yml");
-        if (!storage.exists()) { // verify file is present on disk
+        PlayerState state = PlayerStateStore.get(player.getUniqueId());
+        if (!state.hasInventory()) {
             throw new IllegalArgumentException("Inventory pop requested for player " + player.getName() + ", but "
                     + "inventory was not present in persistent storage!");
         }
-        YamlConfiguration yaml = new YamlConfiguration();
-        yaml.load(storage); // load from disk
-        if (!yaml.contains(PLAYER_INVENTORY_PRIMARY_KEY)) {
-            throw new InvalidConfigurationException("Stored inventory is missing required section \""
-                    + PLAYER_INVENTORY_PRIMARY_KEY + "\"");
-        }
         player.getInventory().clear();
-        player.getInventory().setContents(
-                InventoryHelper.deserializeInventory(yaml.getConfigurationSection(PLAYER_INVENTORY_PRIMARY_KEY))
-        );
-        if (yaml.contains(PLAYER_INVENTORY_ARMOR_KEY)) {
-            player.getInventory().setArmorContents(
-                    InventoryHelper.deserializeInventory(yaml.getConfigurationSection(PLAYER_INVENTORY_ARMOR_KEY))
-            );
+        player.getInventory().setContents(state.getContents());
+        if (state.getArmor() != null) {
+            player.getInventory().setArmorContents(state.getArmor());
         }
         player.updateInventory();
-        //noinspection ResultOfMethodCallIgnored
-        storage.delete();
+        PlayerStateStore.put(player.getUniqueId(), state.withoutInventory());
     }
 
     /**
@@ -148,8 +132,39 @@ public class PlayerHelper {
      * @throws IOException If an exception occurs while saving to disk
      */
     public static void storeLocation(Player player) throws InvalidConfigurationException, IOException {
-        CommonPlayerHelper.storeLocation(player.getUniqueId(),
-                LocationHelper.convertLocation(player.getLocation()));
+        storeLocation(player.getUniqueId(), LocationHelper.convertLocation(player.getLocation()));
+    }
+
+    /**
+     * Stores the given location as the return location of the player with the
+     * given UUID.
+     *
+     * @param uuid The UUID of the player
+     * @param location The location to return the player to
+     */
+    public static void storeLocation(UUID uuid, Location3D location) {
+        PlayerStateStore.put(uuid, PlayerStateStore.get(uuid).withReturnLocation(location));
+    }
+
+    /**
+     * Removes the stored return location of the player with the given UUID
+     * without teleporting them to it.
+     *
+     * @param uuid The UUID of the player
+     */
+    public static void discardLocation(UUID uuid) {
+        PlayerStateStore.put(uuid, PlayerStateStore.get(uuid).withReturnLocation(null));
+    }
+
+    /**
+     * Gets the stored return location of the player with the given UUID
+     * without removing it.
+     *
+     * @param uuid The UUID of the player
+     * @return The player's return location, if stored
+     */
+    public static Optional<Location3D> getReturnLocation(UUID uuid) {
+        return PlayerStateStore.get(uuid).getReturnLocation();
     }
 
     /**
@@ -165,12 +180,64 @@ public class PlayerHelper {
      */
     public static void popLocation(Player player)
             throws IllegalArgumentException, InvalidConfigurationException, IOException {
-        Optional<Location3D> retLoc = CommonPlayerHelper.getReturnLocation(player.getUniqueId());
-        if (!retLoc.isPresent()) {
+        PlayerState state = PlayerStateStore.get(player.getUniqueId());
+        if (!state.getReturnLocation().isPresent()) {
             throw new IllegalArgumentException("Location of player " + player.getName()
                     + " not present in persistent store");
         }
-        player.teleport(LocationHelper.convertLocation(retLoc.get()));
+        PlayerStateStore.put(player.getUniqueId(), state.withReturnLocation(null));
+        player.teleport(LocationHelper.convertLocation(state.getReturnLocation().get()));
+    }
+
+    /**
+     * Flags the player with the given UUID as having disconnected while in a
+     * round.
+     *
+     * @param uuid The UUID of the player
+     */
+    public static void setOfflineFlag(UUID uuid) {
+        PlayerStateStore.put(uuid, PlayerStateStore.get(uuid).withOffline(true));
+    }
+
+    /**
+     * Checks and clears the offline flag of the player with the given UUID.
+     *
+     * @param uuid The UUID of the player
+     * @return Whether the player was flagged as having disconnected while in a
+     *     round
+     */
+    public static boolean checkOfflineFlag(UUID uuid) {
+        PlayerState state = PlayerStateStore.get(uuid);
+        if (state.isOffline()) {
+            PlayerStateStore.put(uuid, state.withOffline(false));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stores the given game mode to be restored to the player with the given
+     * UUID, or clears it if {@code null}.
+     *
+     * @param uuid The UUID of the player
+     * @param gameMode The game mode to store, or {@code null} to clear it
+     */
+    public static void storeGameMode(UUID uuid, GameMode gameMode) {
+        PlayerStateStore.put(uuid, PlayerStateStore.get(uuid).withGameMode(gameMode));
+    }
+
+    /**
+     * Pops the given {@link Player}'s stored game mode, if present, and
+     * applies it to them.
+     *
+     * @param player The {@link Player} to restore the game mode of
+     */
+    public static void popGameMode(Player player) {
+        PlayerState state = PlayerStateStore.get(player.getUniqueId());
+        if (state.getGameMode().isPresent()) {
+            PlayerStateStore.put(player.getUniqueId(), state.withGameMode(null));
+            player.setGameMode(state.getGameMode().get());
+        }
     }
 
     /**